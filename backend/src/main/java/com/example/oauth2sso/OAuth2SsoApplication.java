@@ -2,6 +2,7 @@ package com.example.oauth2sso;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * SpringBoot OAuth2 单点登录示例应用主启动类
@@ -11,6 +12,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * @since 2024-12-26
  */
 @SpringBootApplication
+@EnableScheduling
 public class OAuth2SsoApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,154 @@
+package com.example.oauth2sso.config;
+
+import com.example.oauth2sso.entity.User;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hibernate二级缓存配置类
+ * 使用Caffeine作为JCache实现，为用户实体、GitHub ID自然主键和用户视图查询创建有容量上限和过期时间的本地缓存区域，
+ * 并将各区域的命中率注册到Actuator
+ * 
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+@Configuration
+public class HibernateCacheConfig {
+    
+    // 用户实体和自然主键缓存的过期时间(毫秒)
+    @Value("${app.user.cache.ttl:600000}")
+    private long entityTtlMillis;
+    
+    // 用户实体和自然主键缓存的最大条数
+    @Value("${app.user.cache.max-size:10000}")
+    private long entityMaxSize;
+    
+    // 用户视图查询缓存的过期时间(毫秒)
+    @Value("${app.user.cache.query-ttl:60000}")
+    private long queryTtlMillis;
+    
+    // 用户视图查询缓存的最大条数
+    @Value("${app.user.cache.query-max-size:10000}")
+    private long queryMaxSize;
+    
+    /**
+     * 配置二级缓存使用的JCache缓存管理器
+     * 预先创建Hibernate用到的全部缓存区域；更新时间戳区域用于判断查询缓存是否失效，不能过期或被淘汰。
+     * 每个应用上下文使用独立URI的缓存管理器，同一JVM中的多个上下文（如不同配置的测试）不会共用或重复创建缓存区域
+     * 
+     * @return JCache缓存管理器
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        CachingProvider cachingProvider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = cachingProvider.getCacheManager(
+                URI.create("hibernate-cache-" + UUID.randomUUID()), getClass().getClassLoader());
+        
+        cacheManager.createCache(User.CACHE_REGION, boundedConfiguration(entityTtlMillis, entityMaxSize));
+        cacheManager.createCache(User.NATURAL_ID_CACHE_REGION, boundedConfiguration(entityTtlMillis, entityMaxSize));
+        cacheManager.createCache(User.VIEW_QUERY_CACHE_REGION, boundedConfiguration(queryTtlMillis, queryMaxSize));
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                                 boundedConfiguration(queryTtlMillis, queryMaxSize));
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                                 new CaffeineConfiguration<>());
+        
+        return cacheManager;
+    }
+    
+    /**
+     * 让Hibernate使用上面配置的缓存管理器
+     * 
+     * @param hibernateCacheManager JCache缓存管理器
+     * @return Hibernate属性定制器
+     */
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+    
+    /**
+     * 将二级缓存命中率注册到Actuator
+     * 指标名称为sso.user.cache.hit-ratio，按region标签区分缓存区域；
+     * 命中和未命中次数取自各缓存区域自身的JCache统计信息，不依赖hibernate.generate_statistics
+     * 
+     * @param hibernateCacheManager JCache缓存管理器
+     * @return 缓存指标绑定器
+     */
+    @Bean
+    public MeterBinder hibernateCacheMetrics(CacheManager hibernateCacheManager) {
+        return registry -> {
+            registerHitRatio(registry, hibernateCacheManager, User.CACHE_REGION);
+            registerHitRatio(registry, hibernateCacheManager, User.NATURAL_ID_CACHE_REGION);
+            registerHitRatio(registry, hibernateCacheManager, User.VIEW_QUERY_CACHE_REGION);
+        };
+    }
+    
+    private void registerHitRatio(MeterRegistry registry, CacheManager cacheManager, String region) {
+        ObjectName statistics = statisticsObjectName(cacheManager, region);
+        Gauge.builder("sso.user.cache.hit-ratio", () -> hitRatio(statistics))
+                .tag("region", region)
+                .description("Hibernate二级缓存命中率")
+                .register(registry);
+    }
+    
+    /**
+     * JSR-107规定的缓存统计MXBean名称，Caffeine在缓存开启统计时注册到平台MBeanServer
+     */
+    private static ObjectName statisticsObjectName(CacheManager cacheManager, String region) {
+        try {
+            return new ObjectName("javax.cache:type=CacheStatistics"
+                    + ",CacheManager=" + sanitize(cacheManager.getURI().toString())
+                    + ",Cache=" + sanitize(region));
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalStateException("无效的缓存统计MXBean名称: " + region, e);
+        }
+    }
+    
+    private static String sanitize(String name) {
+        return name.replaceAll("[,:=\n]", ".");
+    }
+    
+    private static double hitRatio(ObjectName statistics) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            long hits = (Long) server.getAttribute(statistics, "CacheHits");
+            long misses = (Long) server.getAttribute(statistics, "CacheMisses");
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        } catch (JMException e) {
+            // 缓存管理器关闭后统计MXBean随之注销
+            return 0.0;
+        }
+    }
+    
+    private static CaffeineConfiguration<Object, Object> boundedConfiguration(long ttlMillis, long maxSize) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.MILLISECONDS.toNanos(ttlMillis)));
+        configuration.setMaximumSize(OptionalLong.of(maxSize));
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+}
@@ -1,18 +1,29 @@
 package com.example.oauth2sso.config;
 
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultHttpRequestRetryStrategy;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.ClientHttpRequestFactory;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
-import java.io.IOException;
-import java.net.HttpURLConnection;
-
 /**
  * HTTP客户端配置类
- * 优化OAuth2相关的网络请求超时和连接设置
- * 防止GitHub API调用时出现连接超时问题
+ * 使用带连接池的Apache HttpClient，复用到GitHub API的长连接，
+ * 避免每次请求都重新进行TCP和TLS握手
  * 
  * @author Luowenqiang
  * @version 1.0.0
@@ -21,50 +32,123 @@ import java.net.HttpURLConnection;
 @Configuration
 public class HttpClientConfig {
     
+    // 连接超时时间(毫秒)
+    @Value("${app.http-client.connect-timeout:15000}")
+    private long connectTimeoutMillis;
+    
+    // 读取超时时间(毫秒)
+    @Value("${app.http-client.read-timeout:30000}")
+    private long readTimeoutMillis;
+    
+    // 从连接池获取连接的等待时间(毫秒)
+    @Value("${app.http-client.connection-request-timeout:5000}")
+    private long connectionRequestTimeoutMillis;
+    
+    // 连接池最大连接数
+    @Value("${app.http-client.max-total:100}")
+    private int maxTotal;
+    
+    // 每个目标主机(路由)的最大连接数
+    @Value("${app.http-client.max-per-route:20}")
+    private int maxPerRoute;
+    
+    // 空闲连接的回收时间(毫秒)
+    @Value("${app.http-client.idle-eviction:30000}")
+    private long idleEvictionMillis;
+    
+    // 连接最长存活时间(毫秒)
+    @Value("${app.http-client.time-to-live:300000}")
+    private long timeToLiveMillis;
+    
+    // 连接空闲超过该时间后，复用前先检查是否可用(毫秒)
+    @Value("${app.http-client.validate-after-inactivity:2000}")
+    private long validateAfterInactivityMillis;
+    
     /**
      * 配置优化的RestTemplate
-     * 设置合理的超时时间和连接参数
      * 
+     * @param clientHttpRequestFactory HTTP客户端请求工厂
      * @return 配置优化的RestTemplate实例
      */
     @Bean
-    public RestTemplate restTemplate() {
+    public RestTemplate restTemplate(ClientHttpRequestFactory clientHttpRequestFactory) {
         RestTemplate restTemplate = new RestTemplate();
-        restTemplate.setRequestFactory(clientHttpRequestFactory());
+        restTemplate.setRequestFactory(clientHttpRequestFactory);
         return restTemplate;
     }
     
+    /**
+     * 配置HTTP连接池
+     * 按路由限制连接数，并设置连接超时、读取超时和连接存活时间
+     * 
+     * @return 连接池管理器
+     */
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager httpClientConnectionManager() {
+        ConnectionConfig connectionConfig = ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMillis))
+                .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMillis))
+                .setTimeToLive(TimeValue.ofMilliseconds(timeToLiveMillis))
+                .setValidateAfterInactivity(TimeValue.ofMilliseconds(validateAfterInactivityMillis))
+                .build();
+        
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(maxPerRoute)
+                .setDefaultConnectionConfig(connectionConfig)
+                .build();
+    }
+    
+    /**
+     * 配置HTTP客户端
+     * 后台线程定期回收空闲和过期连接；
+     * 连接池中的连接失效导致的I/O异常重试一次，429/503等响应不在客户端内等待重试，
+     * 由调用方处理（令牌校验不缓存无法确定的结果，撤销队列有自己的退避重试）
+     * 
+     * @param connectionManager 连接池管理器
+     * @return HTTP客户端
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager connectionManager) {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectionRequestTimeoutMillis))
+                .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMillis))
+                .build();
+        
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictIdleConnections(TimeValue.ofMilliseconds(idleEvictionMillis))
+                .evictExpiredConnections()
+                .setRetryStrategy(new DefaultHttpRequestRetryStrategy(1, TimeValue.ZERO_MILLISECONDS) {
+                    @Override
+                    public boolean retryRequest(HttpResponse response, int execCount, HttpContext context) {
+                        return false;
+                    }
+                })
+                .build();
+    }
+    
     /**
      * 配置HTTP客户端请求工厂
-     * 设置连接超时、读取超时等参数
      * 
+     * @param httpClient HTTP客户端
      * @return 配置的ClientHttpRequestFactory
      */
     @Bean
-    public ClientHttpRequestFactory clientHttpRequestFactory() {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory() {
-            @Override
-            protected void prepareConnection(HttpURLConnection connection, String httpMethod) throws IOException {
-                super.prepareConnection(connection, httpMethod);
-                
-                // 设置连接属性以优化OAuth2相关请求
-                connection.setUseCaches(false);
-                connection.setDoInput(true);
-                connection.setDoOutput(true);
-                
-                // 设置请求头以避免某些网络问题
-                connection.setRequestProperty("Connection", "close");
-                connection.setRequestProperty("Accept-Encoding", "gzip, deflate");
-                connection.setRequestProperty("Cache-Control", "no-cache");
-            }
-        };
-        
-        // 连接超时时间：15秒
-        factory.setConnectTimeout(15000);
-        
-        // 读取超时时间：30秒
-        factory.setReadTimeout(30000);
-        
-        return factory;
+    public ClientHttpRequestFactory clientHttpRequestFactory(CloseableHttpClient httpClient) {
+        return new HttpComponentsClientHttpRequestFactory(httpClient);
+    }
+    
+    /**
+     * 将连接池指标注册到Actuator
+     * 指标名称以httpcomponents.httpclient.pool开头
+     * 
+     * @param connectionManager 连接池管理器
+     * @return 连接池指标绑定器
+     */
+    @Bean
+    public MeterBinder httpClientPoolMetrics(PoolingHttpClientConnectionManager connectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "oauth2-http-client");
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,42 @@
+package com.example.oauth2sso.config;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * 数据库迁移任务
+ * 以migrate配置文件启动时，Flyway在应用上下文初始化阶段完成迁移，本任务输出迁移结果后退出进程，
+ * 用于在部署应用实例之前单独执行一次数据库迁移
+ * 
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+@Component
+@Profile("migrate")
+public class MigrationJobRunner implements ApplicationRunner {
+    
+    private static final Logger logger = LoggerFactory.getLogger(MigrationJobRunner.class);
+    
+    @Autowired
+    private Flyway flyway;
+    
+    @Autowired
+    private ApplicationContext applicationContext;
+    
+    @Override
+    public void run(ApplicationArguments args) {
+        MigrationInfo current = flyway.info().current();
+        logger.info("数据库迁移完成，当前版本: {}", current != null ? current.getVersion() : "无");
+        System.exit(SpringApplication.exit(applicationContext, () -> 0));
+    }
+}
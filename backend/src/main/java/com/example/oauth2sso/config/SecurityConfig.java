@@ -262,6 +262,7 @@ public class SecurityConfig {
     /**
      * 配置会话注册表
      * 用于跟踪所有活跃会话，支持单点登出
+     * SessionRegistryImpl内部维护以会话ID为键的索引，按会话ID查找为O(1)
      * 
      * @return SessionRegistry
      */
@@ -0,0 +1,30 @@
+package com.example.oauth2sso.config;
+
+import com.example.oauth2sso.web.CurrentUserArgumentResolver;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Web MVC配置类
+ * 注册控制器方法的自定义参数解析器
+ * 
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+    
+    @Autowired
+    private CurrentUserArgumentResolver currentUserArgumentResolver;
+    
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        // 注入当前登录用户信息，见@CurrentUser
+        resolvers.add(currentUserArgumentResolver);
+    }
+}
@@ -1,8 +1,8 @@
 package com.example.oauth2sso.controller;
 
-import com.example.oauth2sso.service.OAuth2TokenService;
 import com.example.oauth2sso.service.SessionSyncService;
 import com.example.oauth2sso.service.LogoutNotificationService;
+import com.example.oauth2sso.service.TokenRevocationQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -41,7 +41,7 @@ public class SingleSignOutController {
     private static final Logger logger = LoggerFactory.getLogger(SingleSignOutController.class);
     
     @Autowired
-    private OAuth2TokenService tokenService;
+    private TokenRevocationQueue tokenRevocationQueue;
     
     @Autowired
     private SessionSyncService sessionSyncService;
@@ -180,6 +180,7 @@ public class SingleSignOutController {
             responseData.put("message", result.getMessage());
             responseData.put("expiredSessions", result.getExpiredSessions().size());
             responseData.put("tokenRevoked", result.isTokenRevoked());
+            responseData.put("tokenRevocationId", result.getTokenRevocationId());
             
             return ResponseEntity.ok(responseData);
             
@@ -219,6 +220,20 @@ public class SingleSignOutController {
         return ResponseEntity.ok(statusData);
     }
     
+    /**
+     * 查询令牌撤销状态
+     * 
+     * @param tokenHash 令牌哈希（登出结果中的tokenRevocationId）
+     * @return JSON响应
+     */
+    @GetMapping("/api/revocations/{tokenHash}")
+    @ResponseBody
+    public ResponseEntity<?> getRevocationStatus(@PathVariable String tokenHash) {
+        return tokenRevocationQueue.getStatus(tokenHash)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(404).body(Map.of("error", "未找到", "message", "没有该令牌的撤销记录")));
+    }
+    
     /**
      * 执行本地登出
      * 仅清除当前会话，不影响其他会话和令牌
@@ -300,27 +315,22 @@ public class SingleSignOutController {
         // 执行单点登出（清除所有会话）
         SessionSyncService.LogoutResult result = sessionSyncService.performSingleSignOut(username, currentSessionId);
         
-        // 撤销OAuth2令牌
+        // 撤销OAuth2令牌：提交到后台撤销队列，同一令牌只会撤销一次
         boolean tokenRevoked = false;
         if (accessToken != null) {
-            logger.info("开始撤销OAuth2令牌: token={}***", 
+            logger.info("提交OAuth2令牌撤销: token={}***", 
                        accessToken.substring(0, Math.min(8, accessToken.length())));
             
-            // 首先尝试主要的撤销方法
-            tokenRevoked = tokenService.revokeGitHubToken(accessToken);
+            TokenRevocationQueue.RevocationStatus revocation = tokenRevocationQueue.submit(accessToken);
+            result.setTokenRevocationId(revocation.tokenHash());
+            tokenRevoked = revocation.state() == TokenRevocationQueue.RevocationState.REVOKED;
             
-            if (!tokenRevoked) {
-                logger.warn("主要撤销方法失败，尝试备用方法");
-                // 如果主要方法失败，尝试备用方法
-                tokenRevoked = tokenService.revokeTokenDirectly(accessToken);
-            }
-            
-            if (!tokenRevoked) {
-                logger.warn("令牌撤销失败，但会话已清除。用户可能需要手动撤销GitHub授权");
+            if (revocation.state() == TokenRevocationQueue.RevocationState.FAILED) {
+                logger.warn("令牌撤销提交失败，但会话已清除。用户可能需要手动撤销GitHub授权");
                 result.setMessage("全局登出部分成功：已清除所有会话，但令牌撤销失败。" +
                                 "建议访问 https://github.com/settings/applications 手动撤销授权");
-            } else {
-                logger.info("令牌撤销成功");
+            } else if (!tokenRevoked) {
+                result.setMessage("全局登出成功：已清除所有会话，令牌撤销正在后台处理");
             }
         } else {
             logger.warn("无法获取访问令牌，跳过令牌撤销");
@@ -331,7 +341,8 @@ public class SingleSignOutController {
         new SecurityContextLogoutHandler().logout(request, response, authentication);
         
         // 广播登出通知
-        String notificationMessage = tokenRevoked ? "全局登出，令牌已撤销" : "全局登出，会话已清除";
+        String notificationMessage = tokenRevoked ? "全局登出，令牌已撤销"
+                : result.getTokenRevocationId() != null ? "全局登出，令牌撤销处理中" : "全局登出，会话已清除";
         notificationService.broadcastLogoutNotification(username, notificationMessage);
         
         result.setTokenRevoked(tokenRevoked);
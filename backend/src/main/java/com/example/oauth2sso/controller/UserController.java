@@ -1,7 +1,12 @@
 package com.example.oauth2sso.controller;
 
 import com.example.oauth2sso.dto.UserDTO;
+import com.example.oauth2sso.dto.UserPageDTO;
 import com.example.oauth2sso.service.UserService;
+import com.example.oauth2sso.service.UserStatisticsService;
+import com.example.oauth2sso.web.CurrentUser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,10 +17,13 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
 /**
  * 用户信息控制器
@@ -32,45 +40,40 @@ public class UserController {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private UserStatisticsService userStatisticsService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     /**
      * 用户信息页面
      * 
      * @param model 视图模型
+     * @param user 当前登录用户
      * @param oauth2User OAuth2用户信息
      * @return 用户信息页面视图
      */
     @GetMapping("/profile")
-    public String profile(Model model, @AuthenticationPrincipal OAuth2User oauth2User) {
+    public String profile(Model model, @CurrentUser(includeBio = true) UserDTO user,
+                          @AuthenticationPrincipal OAuth2User oauth2User) {
         try {
             if (oauth2User == null) {
                 logger.warn("用户未认证，重定向到登录页面");
                 return "redirect:/login";
             }
             
-            // 安全获取GitHub ID
-            Object idObj = oauth2User.getAttribute("id");
-            String githubId = idObj != null ? String.valueOf(idObj) : null;
-            
-            if (githubId == null || githubId.isEmpty()) {
-                logger.error("无法获取用户GitHub ID，OAuth2用户属性: {}", oauth2User.getAttributes());
-                model.addAttribute("errorMessage", "无法获取用户标识信息");
-                return "profile";
-            }
-            
-            Optional<UserDTO> userDTO = userService.findByGithubId(githubId);
-            
-            if (userDTO.isPresent()) {
-                UserDTO user = userDTO.get();
+            if (user != null) {
                 model.addAttribute("user", user);
                 // 安全的日志记录
                 String username = user.getUsername();
                 if (username != null) {
                     logger.info("用户访问个人信息页面: {}", username);
                 } else {
-                    logger.info("用户访问个人信息页面: GitHub ID={}", githubId);
+                    logger.info("用户访问个人信息页面: GitHub ID={}", user.getGithubId());
                 }
             } else {
-                logger.warn("未找到用户信息: GitHub ID={}", githubId);
+                logger.warn("未找到用户信息，OAuth2用户属性: {}", oauth2User.getAttributes());
                 model.addAttribute("errorMessage", "未找到用户信息，请尝试重新登录");
             }
             
@@ -91,28 +94,26 @@ public class UserController {
     /**
      * 获取当前用户信息API
      * 
+     * @param includeBio 是否返回个人简介
+     * @param user 当前登录用户
      * @param oauth2User OAuth2用户信息
      * @return 用户信息JSON
      */
     @GetMapping("/api/user/current")
     @ResponseBody
-    public ResponseEntity<?> getCurrentUser(@AuthenticationPrincipal OAuth2User oauth2User) {
+    public ResponseEntity<?> getCurrentUser(@RequestParam(defaultValue = "false") boolean includeBio,
+                                           @CurrentUser UserDTO user,
+                                           @AuthenticationPrincipal OAuth2User oauth2User) {
         try {
             if (oauth2User == null) {
                 return ResponseEntity.status(401).body(Map.of("error", "未认证", "message", "请先登录"));
             }
             
-            Object idObj = oauth2User.getAttribute("id");
-            String githubId = idObj != null ? String.valueOf(idObj) : null;
-            
-            if (githubId == null) {
-                return ResponseEntity.status(400).body(Map.of("error", "无效用户", "message", "无法获取用户标识"));
-            }
-            
-            Optional<UserDTO> userDTO = userService.findByGithubId(githubId);
-            
-            if (userDTO.isPresent()) {
-                return ResponseEntity.ok(userDTO.get());
+            if (user != null) {
+                // 注入的用户信息不一定包含个人简介，需要时单独查询
+                return ResponseEntity.ok(includeBio
+                        ? userService.findViewByGithubId(user.getGithubId(), true).orElse(user)
+                        : user.withoutBio());
             } else {
                 return ResponseEntity.status(404).body(Map.of("error", "用户不存在", "message", "未找到用户信息"));
             }
@@ -127,39 +128,27 @@ public class UserController {
      * 更新用户信息API
      * 
      * @param userDTO 用户信息
+     * @param currentUser 当前登录用户
      * @param oauth2User OAuth2用户信息
      * @return 更新结果
      */
     @PostMapping("/api/user/update")
     @ResponseBody
     public ResponseEntity<?> updateUser(@RequestBody UserDTO userDTO, 
+                                       @CurrentUser UserDTO currentUser,
                                        @AuthenticationPrincipal OAuth2User oauth2User) {
         if (oauth2User == null) {
             return ResponseEntity.status(401).body(Map.of("error", "未认证", "message", "请先登录"));
         }
         
         try {
-            Object idObj = oauth2User.getAttribute("id");
-            String githubId = idObj != null ? String.valueOf(idObj) : null;
-            
-            if (githubId == null) {
-                return ResponseEntity.status(400).body(Map.of("error", "无效用户", "message", "无法获取用户标识"));
-            }
-            
-            Optional<UserDTO> currentUser = userService.findByGithubId(githubId);
-            
-            if (currentUser.isEmpty()) {
+            if (currentUser == null) {
                 return ResponseEntity.status(404).body(Map.of("error", "用户不存在", "message", "未找到用户信息"));
             }
             
-            // 只允许用户更新自己的信息
-            if (!githubId.equals(currentUser.get().getGithubId())) {
-                return ResponseEntity.status(403).body(Map.of("error", "权限不足", "message", "只能更新自己的信息"));
-            }
-            
-            // 设置用户ID，确保更新正确的用户
-            userDTO.setId(currentUser.get().getId());
-            userDTO.setGithubId(currentUser.get().getGithubId());
+            // 设置用户ID，确保只更新当前用户自己的信息
+            userDTO.setId(currentUser.getId());
+            userDTO.setGithubId(currentUser.getGithubId());
             
             UserDTO updatedUser = userService.updateUser(userDTO);
             
@@ -178,52 +167,99 @@ public class UserController {
     }
     
     /**
-     * 获取所有用户API（管理员功能）
+     * 获取用户列表API（管理员功能）
+     * 键集分页，通过返回的nextCursor获取下一页
      * 
+     * @param cursor 分页游标，为空时查询第一页
+     * @param size 每页条数
+     * @param includeTotal 是否返回用户总数
      * @param oauth2User OAuth2用户信息
      * @return 用户列表
      */
     @GetMapping("/api/users")
     @ResponseBody
-    public ResponseEntity<?> getAllUsers(@AuthenticationPrincipal OAuth2User oauth2User) {
+    public ResponseEntity<?> getAllUsers(@RequestParam(required = false) String cursor,
+                                        @RequestParam(defaultValue = "${app.user.page.default-size:20}") int size,
+                                        @RequestParam(defaultValue = "true") boolean includeTotal,
+                                        @AuthenticationPrincipal OAuth2User oauth2User) {
         if (oauth2User == null) {
             return ResponseEntity.status(401).body(Map.of("error", "未认证", "message", "请先登录"));
         }
         
         try {
-            List<UserDTO> users = userService.findAll();
-            long totalCount = userService.count();
+            UserPageDTO page = userService.findPage(cursor, size, includeTotal);
             
             Map<String, Object> response = new HashMap<>();
-            response.put("users", users);
-            response.put("total", totalCount);
-            response.put("count", users.size());
+            response.put("users", page.getUsers());
+            response.put("count", page.getUsers().size());
+            response.put("nextCursor", page.getNextCursor());
+            response.put("hasMore", page.isHasMore());
+            if (page.getTotal() != null) {
+                response.put("total", page.getTotal());
+            }
             
             return ResponseEntity.ok(response);
             
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(Map.of("error", "参数错误", "message", e.getMessage()));
         } catch (Exception e) {
             logger.error("获取用户列表失败", e);
             return ResponseEntity.status(500).body(Map.of("error", "获取失败", "message", e.getMessage()));
         }
     }
     
+    /**
+     * 导出所有用户API（管理员功能）
+     * 以NDJSON格式（每行一个JSON对象）流式输出，不在内存中汇总全部用户
+     * 
+     * @param response HTTP响应
+     * @param oauth2User OAuth2用户信息
+     * @throws IOException 写入响应失败
+     */
+    @GetMapping("/api/users/export")
+    public void exportUsers(HttpServletResponse response,
+                            @AuthenticationPrincipal OAuth2User oauth2User) throws IOException {
+        if (oauth2User == null) {
+            response.sendError(401);
+            return;
+        }
+        
+        response.setContentType("application/x-ndjson;charset=UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"users.ndjson\"");
+        
+        OutputStream out = response.getOutputStream();
+        long exported = userService.exportAll(user -> {
+            try {
+                objectMapper.writeValue(out, user);
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.flush();
+        
+        logger.info("导出用户数据完成: {} 条", exported);
+    }
+    
     /**
      * 搜索用户API
      * 
      * @param username 用户名关键字
+     * @param limit 最多返回条数
      * @param oauth2User OAuth2用户信息
-     * @return 搜索结果
+     * @return 搜索结果，按相关度排序
      */
     @GetMapping("/api/users/search")
     @ResponseBody
-    public ResponseEntity<?> searchUsers(@RequestParam String username,
+    public ResponseEntity<?> searchUsers(@RequestParam(required = false) String username,
+                                        @RequestParam(defaultValue = "20") int limit,
                                         @AuthenticationPrincipal OAuth2User oauth2User) {
         if (oauth2User == null) {
             return ResponseEntity.status(401).body(Map.of("error", "未认证", "message", "请先登录"));
         }
         
         try {
-            List<UserDTO> users = userService.searchByUsername(username);
+            List<UserDTO> users = userService.searchByUsername(username, limit);
             
             Map<String, Object> response = new HashMap<>();
             response.put("users", users);
@@ -256,6 +292,8 @@ public class UserController {
             
             Map<String, Object> stats = new HashMap<>();
             stats.put("totalUsers", totalUsers);
+            stats.put("activeToday", userStatisticsService.getActiveUsers(LocalDate.now()));
+            stats.put("dailyActiveUsers", userStatisticsService.getDailyActiveUsers());
             stats.put("timestamp", System.currentTimeMillis());
             
             return ResponseEntity.ok(stats);
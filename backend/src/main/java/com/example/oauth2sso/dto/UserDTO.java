@@ -96,6 +96,32 @@ public class UserDTO {
         return dto;
     }
     
+    /**
+     * 复制一份不包含个人简介的UserDTO
+     * 
+     * @return UserDTO副本
+     */
+    public UserDTO withoutBio() {
+        UserDTO copy = new UserDTO();
+        copy.setId(this.id);
+        copy.setGithubId(this.githubId);
+        copy.setUsername(this.username);
+        copy.setEmail(this.email);
+        copy.setAvatarUrl(this.avatarUrl);
+        copy.setName(this.name);
+        copy.setLocation(this.location);
+        copy.setCompany(this.company);
+        copy.setBlog(this.blog);
+        copy.setPublicRepos(this.publicRepos);
+        copy.setFollowers(this.followers);
+        copy.setFollowing(this.following);
+        copy.setLastLogin(this.lastLogin);
+        copy.setCreatedAt(this.createdAt);
+        copy.setUpdatedAt(this.updatedAt);
+        
+        return copy;
+    }
+    
     /**
      * 将UserDTO转换为User实体
      * 
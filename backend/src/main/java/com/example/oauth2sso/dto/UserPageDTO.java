@@ -0,0 +1,66 @@
+package com.example.oauth2sso.dto;
+
+import java.util.List;
+
+/**
+ * 用户分页结果
+ * 基于(创建时间, ID)的键集分页，通过nextCursor获取下一页
+ * 
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+public class UserPageDTO {
+    
+    private List<UserDTO> users;
+    
+    // 下一页游标，没有更多数据时为null
+    private String nextCursor;
+    
+    private boolean hasMore;
+    
+    // 未删除用户总数，未请求统计时为null
+    private Long total;
+    
+    public UserPageDTO() {}
+    
+    public UserPageDTO(List<UserDTO> users, String nextCursor, boolean hasMore, Long total) {
+        this.users = users;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+        this.total = total;
+    }
+    
+    // Getters and Setters
+    public List<UserDTO> getUsers() {
+        return users;
+    }
+    
+    public void setUsers(List<UserDTO> users) {
+        this.users = users;
+    }
+    
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+    
+    public boolean isHasMore() {
+        return hasMore;
+    }
+    
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+    
+    public Long getTotal() {
+        return total;
+    }
+    
+    public void setTotal(Long total) {
+        this.total = total;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.oauth2sso.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * 用户只读视图
+ * 由JPQL构造表达式直接查询生成，不经过实体加载、持久化上下文和脏检查；
+ * 不包含bio等大字段，需要时单独查询
+ * 
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+public record UserView(Long id, String githubId, String username, String email, String avatarUrl,
+                       String name, String location, String company, String blog,
+                       Integer publicRepos, Integer followers, Integer following,
+                       LocalDateTime lastLogin, LocalDateTime createdAt, LocalDateTime updatedAt) {
+    
+    /**
+     * 转换为UserDTO
+     * 
+     * @param bio 个人简介，未查询时为null
+     * @return UserDTO对象
+     */
+    public UserDTO toDTO(String bio) {
+        UserDTO dto = new UserDTO();
+        dto.setId(id);
+        dto.setGithubId(githubId);
+        dto.setUsername(username);
+        dto.setEmail(email);
+        dto.setAvatarUrl(avatarUrl);
+        dto.setName(name);
+        dto.setBio(bio);
+        dto.setLocation(location);
+        dto.setCompany(company);
+        dto.setBlog(blog);
+        dto.setPublicRepos(publicRepos);
+        dto.setFollowers(followers);
+        dto.setFollowing(following);
+        dto.setLastLogin(lastLogin);
+        dto.setCreatedAt(createdAt);
+        dto.setUpdatedAt(updatedAt);
+        
+        return dto;
+    }
+}
@@ -4,26 +4,52 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
+import java.util.Objects;
 
 /**
  * 用户实体类
+ * 启用二级缓存，并以GitHub ID作为自然主键缓存GitHub ID到用户ID的映射
  * 
  * @author Luowenqiang
  * @version 1.0.0
  * @since 2024-12-26
  */
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+    @Index(name = "idx_delete_flag_created_at_id", columnList = "delete_flag, created_at, id"),
+    @Index(name = "idx_delete_flag_username", columnList = "delete_flag, username"),
+    @Index(name = "idx_delete_flag_last_login", columnList = "delete_flag, last_login"),
+    @Index(name = "idx_email", columnList = "email"),
+    @Index(name = "idx_delete_flag_delete_time", columnList = "delete_flag, delete_time")
+})
+@DynamicUpdate
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
+@NaturalIdCache(region = User.NATURAL_ID_CACHE_REGION)
 public class User {
     
+    // 用户实体缓存区域
+    public static final String CACHE_REGION = "user";
+    
+    // GitHub ID自然主键缓存区域
+    public static final String NATURAL_ID_CACHE_REGION = "user-natural-id";
+    
+    // 用户视图查询缓存区域
+    public static final String VIEW_QUERY_CACHE_REGION = "user-view";
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
+    @NaturalId
     @Column(name = "github_id", unique = true, nullable = false, length = 50)
     @NotBlank(message = "GitHub ID不能为空")
     @Size(max = 50, message = "GitHub ID长度不能超过50")
@@ -272,6 +298,30 @@ public class User {
         this.deleteTime = null;
     }
     
+    /**
+     * 用GitHub返回的资料更新用户信息
+     * 只修改与当前值不同的字段，配合@DynamicUpdate只写入发生变化的列
+     * 
+     * @return 是否有字段发生变化
+     */
+    public boolean applyGitHubProfile(String username, String email, String avatarUrl, String name,
+                                      String bio, String location, String company, String blog,
+                                      Integer publicRepos, Integer followers, Integer following) {
+        boolean changed = false;
+        if (!Objects.equals(this.username, username)) { this.username = username; changed = true; }
+        if (!Objects.equals(this.email, email)) { this.email = email; changed = true; }
+        if (!Objects.equals(this.avatarUrl, avatarUrl)) { this.avatarUrl = avatarUrl; changed = true; }
+        if (!Objects.equals(this.name, name)) { this.name = name; changed = true; }
+        if (!Objects.equals(this.bio, bio)) { this.bio = bio; changed = true; }
+        if (!Objects.equals(this.location, location)) { this.location = location; changed = true; }
+        if (!Objects.equals(this.company, company)) { this.company = company; changed = true; }
+        if (!Objects.equals(this.blog, blog)) { this.blog = blog; changed = true; }
+        if (!Objects.equals(this.publicRepos, publicRepos)) { this.publicRepos = publicRepos; changed = true; }
+        if (!Objects.equals(this.followers, followers)) { this.followers = followers; changed = true; }
+        if (!Objects.equals(this.following, following)) { this.following = following; changed = true; }
+        return changed;
+    }
+    
     /**
      * 更新最后登录时间
      */
@@ -8,6 +8,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PongMessage;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
@@ -53,17 +54,18 @@ public class LogoutWebSocketHandler extends TextWebSocketHandler {
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
         String payload = message.getPayload();
         logger.debug("收到WebSocket消息: wsId={}, message={}", session.getId(), payload);
+        logoutNotificationService.touch(session);
         
         // 处理客户端发送的消息
         if ("ping".equals(payload)) {
             // 处理心跳消息
-            session.sendMessage(new TextMessage("pong"));
+            logoutNotificationService.reply(session, "pong");
         } else if ("status".equals(payload)) {
             // 处理状态查询
             String username = extractUsername(session);
             if (username != null) {
                 String statusMessage = String.format("{\"type\":\"status\",\"username\":\"%s\",\"status\":\"online\"}", username);
-                session.sendMessage(new TextMessage(statusMessage));
+                logoutNotificationService.reply(session, statusMessage);
             }
         } else {
             // 其他消息类型
@@ -71,9 +73,15 @@ public class LogoutWebSocketHandler extends TextWebSocketHandler {
         }
     }
     
+    @Override
+    protected void handlePongMessage(WebSocketSession session, PongMessage message) throws Exception {
+        // 服务端心跳Ping的响应
+        logoutNotificationService.touch(session);
+    }
+    
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
-        logger.info("WebSocket连接关闭: wsId={}, status={}", session.getId(), status);
+        logger.debug("WebSocket连接关闭: wsId={}, status={}", session.getId(), status);
         
         // 通知服务处理连接关闭
         logoutNotificationService.handleWebSocketClose(session, status);
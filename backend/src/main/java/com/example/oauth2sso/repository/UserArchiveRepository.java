@@ -0,0 +1,99 @@
+package com.example.oauth2sso.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 已删除用户归档数据访问类
+ * 软删除超过保留期的用户从users表整行移入users_archive表，使users表及其索引只包含正常用户和近期删除的用户；
+ * 恢复用户时再整行移回users表，用户ID保持不变。
+ * 移动由INSERT ... SELECT和DELETE两条语句完成，调用方需要在同一事务中执行。
+ * 
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+@Repository
+public class UserArchiveRepository {
+    
+    private static final String COLUMNS =
+            "id, github_id, username, email, avatar_url, name, bio, location, company, blog, " +
+            "public_repos, followers, following, last_login, created_at, updated_at, " +
+            "delete_flag, delete_user, delete_time";
+    
+    // 按(delete_flag, delete_time)索引查找到期用户，并锁定这些行，避免移动期间被并发恢复
+    private static final String SELECT_EXPIRED_IDS_SQL =
+            "SELECT id FROM users WHERE delete_flag = '1' AND delete_time < ? " +
+            "ORDER BY delete_time, id LIMIT ? FOR UPDATE";
+    
+    private static final String ARCHIVE_SQL =
+            "INSERT INTO users_archive (" + COLUMNS + ", archived_at) " +
+            "SELECT " + COLUMNS + ", :archivedAt FROM users WHERE id IN (:ids) AND delete_flag = '1'";
+    
+    private static final String DELETE_ARCHIVED_SQL =
+            "DELETE FROM users WHERE id IN (:ids) AND delete_flag = '1'";
+    
+    private static final String RESTORE_SQL =
+            "INSERT INTO users (" + COLUMNS + ") SELECT " + COLUMNS + " FROM users_archive WHERE id = ?";
+    
+    private static final String DELETE_RESTORED_SQL =
+            "DELETE FROM users_archive WHERE id = ?";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    
+    /**
+     * 查找删除时间早于指定时间的已删除用户并加锁
+     * 
+     * @param deletedBefore 删除时间上限
+     * @param limit 最多返回条数
+     * @return 用户ID列表，按删除时间升序
+     */
+    public List<Long> lockExpiredIds(LocalDateTime deletedBefore, int limit) {
+        return jdbcTemplate.queryForList(SELECT_EXPIRED_IDS_SQL, Long.class, Timestamp.valueOf(deletedBefore), limit);
+    }
+    
+    /**
+     * 将已删除用户移入归档表
+     * 
+     * @param ids 用户ID列表
+     * @param archivedAt 归档时间
+     * @return 移动的用户数
+     */
+    public int archive(List<Long> ids, LocalDateTime archivedAt) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("ids", ids)
+                .addValue("archivedAt", Timestamp.valueOf(archivedAt));
+        int archived = namedParameterJdbcTemplate.update(ARCHIVE_SQL, params);
+        int deleted = namedParameterJdbcTemplate.update(DELETE_ARCHIVED_SQL, params);
+        if (archived != deleted) {
+            throw new IllegalStateException("归档用户数与删除用户数不一致: " + archived + " != " + deleted);
+        }
+        return deleted;
+    }
+    
+    /**
+     * 将归档用户移回users表，仍保持已删除状态
+     * GitHub ID已被新用户占用时抛出DuplicateKeyException
+     * 
+     * @param id 用户ID
+     * @return 归档表中是否存在该用户
+     */
+    public boolean restore(Long id) {
+        if (jdbcTemplate.update(RESTORE_SQL, id) == 0) {
+            return false;
+        }
+        jdbcTemplate.update(DELETE_RESTORED_SQL, id);
+        return true;
+    }
+}
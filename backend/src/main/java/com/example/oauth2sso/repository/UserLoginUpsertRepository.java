@@ -0,0 +1,230 @@
+package com.example.oauth2sso.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 用户登录信息upsert数据访问类
+ * 用一条INSERT ... ON DUPLICATE KEY UPDATE完成OAuth2登录时的用户创建或资料更新，
+ * 由github_id唯一约束保证同一账号并发首次登录时只会创建一条记录。
+ * 已被软删除的用户只会命中唯一约束，不会被更新或恢复；资料无变化的再次登录只更新last_login，不改updated_at。
+ * 测试使用的H2数据库不支持该语法，改为先插入、遇到唯一约束冲突再更新。
+ * 
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+@Repository
+public class UserLoginUpsertRepository {
+    
+    private static final Logger logger = LoggerFactory.getLogger(UserLoginUpsertRepository.class);
+    
+    private static final String INSERT_COLUMNS =
+            "github_id, username, email, avatar_url, name, bio, location, company, blog, " +
+            "public_repos, followers, following, last_login, created_at, updated_at, delete_flag";
+    
+    // 来自GitHub的资料列，再次登录时更新；只有其中某列的值发生变化时才更新updated_at
+    private static final List<String> PROFILE_COLUMNS = List.of(
+            "username", "email", "avatar_url", "name", "bio", "location", "company", "blog",
+            "public_repos", "followers", "following");
+    
+    // 更新已有记录时写入LAST_INSERT_ID的标记位，用户ID不会达到该值，据此区分插入和更新
+    static final long UPDATED_FLAG = 1L << 62;
+    
+    // 新值通过行别名new引用（MySQL 8.0.19+），代替已废弃的VALUES(column)。
+    // 未删除的记录：LAST_INSERT_ID记为用户ID加标记位，id本身不变；
+    // updated_at必须在资料列之前赋值（MySQL按顺序求值，后面的表达式看到的是已更新的值），
+    // 资料无变化时显式赋为原值，也不会触发ON UPDATE CURRENT_TIMESTAMP。
+    // 已删除的记录：所有列保持不变，LAST_INSERT_ID(0)让语句不返回生成键
+    static final String MYSQL_UPSERT_SQL =
+            "INSERT INTO users (" + INSERT_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, '0') AS new " +
+            "ON DUPLICATE KEY UPDATE " +
+            "id = IF(delete_flag = '0', LAST_INSERT_ID(id + " + UPDATED_FLAG + ") - " + UPDATED_FLAG + ", " +
+            "id + LAST_INSERT_ID(0)), " +
+            "updated_at = IF(delete_flag = '0' AND NOT (" + String.join(" AND ", PROFILE_COLUMNS.stream()
+                    .map(column -> column + " <=> new." + column)
+                    .toList()) + "), new.updated_at, updated_at), " +
+            String.join(", ", PROFILE_COLUMNS.stream()
+                    .map(column -> column + " = IF(delete_flag = '0', new." + column + ", " + column + ")")
+                    .toList()) + ", " +
+            "last_login = IF(delete_flag = '0', new.last_login, last_login)";
+    
+    private static final String INSERT_SQL =
+            "INSERT INTO users (" + INSERT_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, '0')";
+    
+    // H2按更新前的值求值所有赋值表达式，updated_at的判断不受赋值顺序影响
+    private static final String UPDATE_SQL =
+            "UPDATE users SET updated_at = CASE WHEN (" + String.join(", ", PROFILE_COLUMNS) + ") " +
+            "IS NOT DISTINCT FROM (" + String.join(", ", PROFILE_COLUMNS.stream().map(column -> "?").toList()) + ") " +
+            "THEN updated_at ELSE ? END, " +
+            String.join(", ", PROFILE_COLUMNS.stream().map(column -> column + " = ?").toList()) +
+            ", last_login = ? WHERE github_id = ? AND delete_flag = '0'";
+    
+    private static final String SELECT_BY_GITHUB_ID_SQL =
+            "SELECT id, delete_flag FROM users WHERE github_id = ?";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    // 是否为MySQL数据库，首次使用时检测
+    private volatile Boolean mysql;
+    
+    /**
+     * 创建或更新登录用户
+     * 
+     * @param profile 登录时获取的GitHub资料
+     * @param loginTime 登录时间
+     * @return upsert结果
+     */
+    public UpsertResult upsert(LoginProfile profile, LocalDateTime loginTime) {
+        return isMysql() ? upsertMysql(profile, loginTime) : insertOrUpdate(profile, loginTime);
+    }
+    
+    /**
+     * MySQL：单条INSERT ... ON DUPLICATE KEY UPDATE，由生成键区分结果
+     */
+    private UpsertResult upsertMysql(LoginProfile profile, LocalDateTime loginTime) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(MYSQL_UPSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+            bindInsert(statement, profile, loginTime);
+            return statement;
+        }, keyHolder);
+        return fromGeneratedKeys(keyHolder.getKeyList());
+    }
+    
+    /**
+     * 根据upsert语句的生成键得到结果
+     * 没有生成键：命中已删除的用户；生成键带标记位：更新了已有用户；否则为新插入的用户ID。
+     * 更新时驱动按影响行数可能返回多个连续的生成键，只有第一个是LAST_INSERT_ID的值
+     * 
+     * @param keys 生成键
+     * @return upsert结果
+     */
+    static UpsertResult fromGeneratedKeys(List<Map<String, Object>> keys) {
+        if (keys.isEmpty()) {
+            return new UpsertResult(0L, false, true);
+        }
+        long key = ((Number) keys.get(0).values().iterator().next()).longValue();
+        if (key >= UPDATED_FLAG) {
+            return new UpsertResult(key - UPDATED_FLAG, false, false);
+        }
+        return new UpsertResult(key, true, false);
+    }
+    
+    /**
+     * H2：先插入，github_id唯一约束冲突时再更新未删除的用户
+     * 只有插入成功才算新建，并发首次登录时冲突的一方按更新处理
+     */
+    private UpsertResult insertOrUpdate(LoginProfile profile, LocalDateTime loginTime) {
+        boolean created;
+        try {
+            jdbcTemplate.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(INSERT_SQL);
+                bindInsert(statement, profile, loginTime);
+                return statement;
+            });
+            created = true;
+        } catch (DuplicateKeyException e) {
+            jdbcTemplate.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(UPDATE_SQL);
+                bindUpdate(statement, profile, loginTime);
+                return statement;
+            });
+            created = false;
+        }
+        Object[] row = selectByGithubId(profile.githubId());
+        return new UpsertResult((Long) row[0], created, !"0".equals(row[1]));
+    }
+    
+    private Object[] selectByGithubId(String githubId) {
+        List<Object[]> rows = jdbcTemplate.query(SELECT_BY_GITHUB_ID_SQL,
+                (rs, rowNum) -> new Object[] { rs.getLong(1), rs.getString(2) }, githubId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+    
+    private static void bindInsert(PreparedStatement statement, LoginProfile profile, LocalDateTime loginTime)
+            throws SQLException {
+        Timestamp now = Timestamp.valueOf(loginTime);
+        statement.setString(1, profile.githubId());
+        int index = bindProfile(statement, 2, profile);
+        statement.setTimestamp(index++, now);
+        statement.setTimestamp(index++, now);
+        statement.setTimestamp(index, now);
+    }
+    
+    private static void bindUpdate(PreparedStatement statement, LoginProfile profile, LocalDateTime loginTime)
+            throws SQLException {
+        Timestamp now = Timestamp.valueOf(loginTime);
+        int index = bindProfile(statement, 1, profile);
+        statement.setTimestamp(index++, now);
+        index = bindProfile(statement, index, profile);
+        statement.setTimestamp(index++, now);
+        statement.setString(index, profile.githubId());
+    }
+    
+    /**
+     * 按PROFILE_COLUMNS的顺序绑定资料列
+     * 
+     * @return 下一个参数位置
+     */
+    private static int bindProfile(PreparedStatement statement, int index, LoginProfile profile) throws SQLException {
+        statement.setString(index++, profile.username());
+        statement.setString(index++, profile.email());
+        statement.setString(index++, profile.avatarUrl());
+        statement.setString(index++, profile.name());
+        statement.setString(index++, profile.bio());
+        statement.setString(index++, profile.location());
+        statement.setString(index++, profile.company());
+        statement.setString(index++, profile.blog());
+        statement.setObject(index++, profile.publicRepos());
+        statement.setObject(index++, profile.followers());
+        statement.setObject(index++, profile.following());
+        return index;
+    }
+    
+    private boolean isMysql() {
+        Boolean result = mysql;
+        if (result == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            result = product != null && product.toLowerCase().contains("mysql");
+            mysql = result;
+            logger.info("登录upsert使用数据库方言: {}", product);
+        }
+        return result;
+    }
+    
+    /**
+     * 登录时获取的GitHub资料
+     */
+    public record LoginProfile(String githubId, String username, String email, String avatarUrl,
+                               String name, String bio, String location, String company, String blog,
+                               Integer publicRepos, Integer followers, Integer following) {
+    }
+    
+    /**
+     * upsert结果
+     * 
+     * @param id 用户ID，用户已被软删除时为0
+     * @param created 是否新创建的用户
+     * @param deleted 用户是否已被软删除（此时未做任何修改）
+     */
+    public record UpsertResult(long id, boolean created, boolean deleted) {
+    }
+}
@@ -1,14 +1,22 @@
 package com.example.oauth2sso.repository;
 
+import com.example.oauth2sso.dto.UserView;
 import com.example.oauth2sso.entity.User;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_CACHE_REGION;
+
 /**
  * 用户数据访问层接口
  * 
@@ -28,6 +36,36 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u WHERE u.githubId = :githubId AND u.deleteFlag = '0'")
     Optional<User> findByGithubIdAndNotDeleted(@Param("githubId") String githubId);
     
+    /**
+     * 根据GitHub ID查询用户只读视图（仅查询未删除的用户）
+     * 只查询视图需要的列，不加载实体；结果存入查询缓存，users表有写入时自动失效
+     * 
+     * @param githubId GitHub用户ID
+     * @return 用户视图
+     */
+    @QueryHints({
+        @QueryHint(name = HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HINT_CACHE_REGION, value = User.VIEW_QUERY_CACHE_REGION)
+    })
+    @Query("SELECT new com.example.oauth2sso.dto.UserView(u.id, u.githubId, u.username, u.email, u.avatarUrl, " +
+           "u.name, u.location, u.company, u.blog, u.publicRepos, u.followers, u.following, " +
+           "u.lastLogin, u.createdAt, u.updatedAt) " +
+           "FROM User u WHERE u.githubId = :githubId AND u.deleteFlag = '0'")
+    Optional<UserView> findViewByGithubIdAndNotDeleted(@Param("githubId") String githubId);
+    
+    /**
+     * 查询用户个人简介
+     * 
+     * @param id 用户ID
+     * @return 个人简介
+     */
+    @QueryHints({
+        @QueryHint(name = HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HINT_CACHE_REGION, value = User.VIEW_QUERY_CACHE_REGION)
+    })
+    @Query("SELECT u.bio FROM User u WHERE u.id = :id")
+    Optional<String> findBioById(@Param("id") Long id);
+    
     /**
      * 根据用户名查找用户（仅查询未删除的用户）
      * 
@@ -54,6 +92,30 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u WHERE u.deleteFlag = '0' ORDER BY u.createdAt DESC")
     List<User> findAllNotDeleted();
     
+    /**
+     * 按(创建时间, ID)倒序查询第一页未删除用户
+     * 
+     * @param pageable 仅用于限制返回条数，页码固定为0
+     * @return 用户列表
+     */
+    @Query("SELECT u FROM User u WHERE u.deleteFlag = '0' ORDER BY u.createdAt DESC, u.id DESC")
+    List<User> findFirstPageNotDeleted(Pageable pageable);
+    
+    /**
+     * 按(创建时间, ID)倒序查询游标之后的未删除用户（键集分页）
+     * 
+     * @param createdAt 上一页最后一条记录的创建时间
+     * @param id 上一页最后一条记录的ID
+     * @param pageable 仅用于限制返回条数，页码固定为0
+     * @return 用户列表
+     */
+    @Query("SELECT u FROM User u WHERE u.deleteFlag = '0' " +
+           "AND (u.createdAt < :createdAt OR (u.createdAt = :createdAt AND u.id < :id)) " +
+           "ORDER BY u.createdAt DESC, u.id DESC")
+    List<User> findPageNotDeletedAfter(@Param("createdAt") LocalDateTime createdAt,
+                                       @Param("id") Long id,
+                                       Pageable pageable);
+    
     /**
      * 根据GitHub ID查找用户（包括已删除的用户）
      * 
@@ -62,14 +124,43 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     Optional<User> findByGithubId(String githubId);
     
+    /**
+     * 检查指定删除标志下是否存在该GitHub ID
+     * 派生的exists查询只取第一条匹配记录（LIMIT 1），不统计全部匹配行
+     * 
+     * @param githubId GitHub用户ID
+     * @param deleteFlag 删除标志
+     * @return 是否存在
+     */
+    boolean existsByGithubIdAndDeleteFlag(String githubId, String deleteFlag);
+    
+    /**
+     * 检查指定删除标志下是否存在该用户名
+     * 
+     * @param username 用户名
+     * @param deleteFlag 删除标志
+     * @return 是否存在
+     */
+    boolean existsByUsernameAndDeleteFlag(String username, String deleteFlag);
+    
+    /**
+     * 检查指定删除标志下是否存在该邮箱
+     * 
+     * @param email 邮箱地址
+     * @param deleteFlag 删除标志
+     * @return 是否存在
+     */
+    boolean existsByEmailAndDeleteFlag(String email, String deleteFlag);
+    
     /**
      * 检查GitHub ID是否已存在（仅检查未删除的用户）
      * 
      * @param githubId GitHub用户ID
      * @return 是否存在
      */
-    @Query("SELECT COUNT(u) > 0 FROM User u WHERE u.githubId = :githubId AND u.deleteFlag = '0'")
-    boolean existsByGithubIdAndNotDeleted(@Param("githubId") String githubId);
+    default boolean existsByGithubIdAndNotDeleted(String githubId) {
+        return existsByGithubIdAndDeleteFlag(githubId, "0");
+    }
     
     /**
      * 检查用户名是否已存在（仅检查未删除的用户）
@@ -77,8 +168,9 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * @param username 用户名
      * @return 是否存在
      */
-    @Query("SELECT COUNT(u) > 0 FROM User u WHERE u.username = :username AND u.deleteFlag = '0'")
-    boolean existsByUsernameAndNotDeleted(@Param("username") String username);
+    default boolean existsByUsernameAndNotDeleted(String username) {
+        return existsByUsernameAndDeleteFlag(username, "0");
+    }
     
     /**
      * 检查邮箱是否已存在（仅检查未删除的用户）
@@ -86,17 +178,33 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * @param email 邮箱地址
      * @return 是否存在
      */
-    @Query("SELECT COUNT(u) > 0 FROM User u WHERE u.email = :email AND u.deleteFlag = '0'")
-    boolean existsByEmailAndNotDeleted(@Param("email") String email);
+    default boolean existsByEmailAndNotDeleted(String email) {
+        return existsByEmailAndDeleteFlag(email, "0");
+    }
     
     /**
      * 根据用户名模糊查询用户（仅查询未删除的用户）
+     * 无法使用用户名索引，仅在搜索索引不可用时使用
      * 
      * @param username 用户名关键字
+     * @param pageable 仅用于限制返回条数，页码固定为0
      * @return 用户列表
      */
     @Query("SELECT u FROM User u WHERE u.username LIKE %:username% AND u.deleteFlag = '0' ORDER BY u.createdAt DESC")
-    List<User> findByUsernameContainingAndNotDeleted(@Param("username") String username);
+    List<User> findByUsernameContainingAndNotDeleted(@Param("username") String username, Pageable pageable);
+    
+    /**
+     * 根据用户名前缀查询用户（仅查询未删除的用户）
+     * 前缀匹配和按(username, id)排序都可以使用idx_delete_flag_username索引（InnoDB二级索引末尾隐含主键），
+     * 调用方需用'!'转义前缀中的'%'、'_'和'!'
+     * 
+     * @param prefix 用户名前缀
+     * @param pageable 仅用于限制返回条数，页码固定为0
+     * @return 用户列表
+     */
+    @Query("SELECT u FROM User u WHERE u.username LIKE CONCAT(:prefix, '%') ESCAPE '!' AND u.deleteFlag = '0' " +
+           "ORDER BY u.username ASC, u.id ASC")
+    List<User> findByUsernameStartingWithAndNotDeleted(@Param("prefix") String prefix, Pageable pageable);
     
     /**
      * 统计未删除用户总数
@@ -0,0 +1,156 @@
+package com.example.oauth2sso.service;
+
+import com.example.oauth2sso.dto.UserDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 当前登录用户缓存
+ * 以GitHub ID为key缓存已登录用户的UserDTO，同一用户的多个会话共享同一份数据。
+ * 登录时由UserService写入，之后只在UserService修改该用户时刷新，
+ * 控制器通过@CurrentUser参数获取，不再每次请求都查询数据库。
+ * 缓存的UserDTO会被多个请求共享，调用方不能修改。
+ * 未命中时按需加载，加载结果可能不含个人简介，需要个人简介的调用方会重新加载。
+ * 
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+@Component
+public class CurrentUserCache {
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // 缓存过期时间(毫秒)，用于兜底同步其他实例对用户的修改
+    @Value("${app.user.current-user-cache.ttl:1800000}")
+    private long ttlMillis;
+    
+    // 缓存最大用户数
+    @Value("${app.user.current-user-cache.max-size:10000}")
+    private long maxSize;
+    
+    private Cache<String, Entry> cache;
+    
+    // 用户最近一次写入或移除时的序号，key为GitHub ID；保留时间远大于单次加载的最长耗时
+    private Cache<String, Long> writes;
+    
+    // 写入序号，单调递增
+    private final AtomicLong writeSequence = new AtomicLong();
+    
+    /**
+     * 初始化缓存并注册缓存指标
+     */
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "currentUserCache");
+        writes = Caffeine.newBuilder()
+                .expireAfterWrite(10, TimeUnit.MINUTES)
+                .build();
+    }
+    
+    /**
+     * 获取用户信息，缓存未命中或缺少所需的个人简介时调用loader加载并写入缓存
+     * 加载在缓存的锁外执行，不阻塞同一哈希桶上的其他读写；
+     * 加载期间该用户被写入或移除时，加载结果只返回给本次调用，不写入缓存，不会覆盖更新的数据
+     * 
+     * @param githubId GitHub用户ID
+     * @param includeBio 是否需要个人简介
+     * @param loader 加载用户信息，用户不存在时返回null
+     * @return 用户信息
+     */
+    public Optional<UserDTO> get(String githubId, boolean includeBio, Supplier<UserDTO> loader) {
+        Entry existing = cache.getIfPresent(githubId);
+        if (existing != null && (existing.bioLoaded() || !includeBio)) {
+            return Optional.of(existing.user());
+        }
+        
+        long startedAt = writeSequence.get();
+        UserDTO loaded = loader.get();
+        if (loaded == null) {
+            return Optional.ofNullable(existing).map(Entry::user);
+        }
+        Entry loadedEntry = new Entry(loaded, includeBio);
+        // 只做内存中的比较，与put/移除在同一个键上原子执行
+        cache.asMap().compute(githubId, (key, current) -> {
+            Long writtenAt = writes.getIfPresent(key);
+            if (writtenAt != null && writtenAt > startedAt) {
+                return current;
+            }
+            if (current != null && current.bioLoaded() && !includeBio) {
+                return current;
+            }
+            return loadedEntry;
+        });
+        return Optional.of(loaded);
+    }
+    
+    /**
+     * 写入用户信息
+     * 调用方传入的是完整的用户信息，包含个人简介
+     * 
+     * @param user 用户信息
+     */
+    public void put(UserDTO user) {
+        if (user != null && user.getGithubId() != null) {
+            write(user.getGithubId(), new Entry(user, true));
+        }
+    }
+    
+    /**
+     * 在当前事务提交后刷新用户信息，没有事务时立即刷新
+     * 
+     * @param user 用户信息
+     */
+    public void refreshAfterCommit(UserDTO user) {
+        TransactionCallbacks.afterCommit(() -> put(user));
+    }
+    
+    /**
+     * 在当前事务提交后移除用户信息，没有事务时立即移除
+     * 
+     * @param githubId GitHub用户ID
+     */
+    public void evictAfterCommit(String githubId) {
+        TransactionCallbacks.afterCommit(() -> write(githubId, null));
+    }
+    
+    /**
+     * 写入或移除缓存条目，并记录写入序号
+     * 
+     * @param githubId GitHub用户ID
+     * @param entry 缓存条目，为null时移除
+     */
+    private void write(String githubId, Entry entry) {
+        cache.asMap().compute(githubId, (key, existing) -> {
+            writes.put(key, writeSequence.incrementAndGet());
+            return entry;
+        });
+    }
+    
+    /**
+     * 缓存条目
+     * 
+     * @param user 用户信息
+     * @param bioLoaded 是否已加载个人简介
+     */
+    private record Entry(UserDTO user, boolean bioLoaded) {
+    }
+}
@@ -32,10 +32,14 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private OAuth2TokenService oauth2TokenService;
+    
     @Override
     public OAuth2User loadUser(OAuth2UserRequest userRequest) throws OAuth2AuthenticationException {
-        // 调用父类方法获取OAuth2User对象
-        OAuth2User oAuth2User = super.loadUser(userRequest);
+        // 调用父类方法获取OAuth2User对象，同一令牌的并发请求只访问一次用户信息端点
+        OAuth2User oAuth2User = oauth2TokenService.coalesce(
+                "oauth2-user-info", userRequest.getAccessToken().getTokenValue(), () -> super.loadUser(userRequest));
         
         try {
             // 处理用户信息
@@ -0,0 +1,34 @@
+package com.example.oauth2sso.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * GitHub令牌撤销提供者
+ * 通过GitHub用户授权撤销API撤销令牌，默认启用
+ * 
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+@Component
+@ConditionalOnProperty(name = "app.oauth2.revocation.provider", havingValue = "github", matchIfMissing = true)
+public class GitHubTokenRevocationProvider implements TokenRevocationProvider {
+    
+    @Autowired
+    private OAuth2TokenService oauth2TokenService;
+    
+    @Override
+    public boolean revoke(String accessToken) {
+        return oauth2TokenService.revokeGitHubGrant(accessToken);
+    }
+    
+    /**
+     * GitHub不可用时抛出异常，避免把无法确认状态的令牌当作已失效
+     */
+    @Override
+    public boolean isTokenActive(String accessToken) {
+        return oauth2TokenService.checkTokenActive(accessToken);
+    }
+}
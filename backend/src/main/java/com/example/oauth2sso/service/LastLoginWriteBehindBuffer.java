@@ -0,0 +1,156 @@
+package com.example.oauth2sso.service;
+
+import com.example.oauth2sso.entity.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 最后登录时间写回缓冲区
+ * 登录时只在内存中记录用户的最后登录时间，同一用户的多次登录合并为一条记录，
+ * 由定时任务以JDBC批量UPDATE写入数据库，应用关闭前再写入一次剩余记录。
+ * JDBC写入绕过了Hibernate，写入后需要手动清除相关的二级缓存
+ * 
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+@Component
+public class LastLoginWriteBehindBuffer {
+    
+    private static final Logger logger = LoggerFactory.getLogger(LastLoginWriteBehindBuffer.class);
+    
+    // 只会把最后登录时间往后推，避免较早的缓冲记录覆盖较新的登录时间；
+    // updated_at显式赋为原值，避免MySQL的ON UPDATE CURRENT_TIMESTAMP把它改为当前时间
+    private static final String UPDATE_SQL =
+            "UPDATE users SET last_login = ?, updated_at = updated_at WHERE id = ? AND (last_login IS NULL OR last_login < ?)";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    // 每批UPDATE的语句数，与Hibernate的批处理大小保持一致
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:20}")
+    private int batchSize;
+    
+    // 待写入的最后登录时间，key为用户ID
+    private final Map<Long, LocalDateTime> pending = new ConcurrentHashMap<>();
+    
+    private Timer flushTimer;
+    
+    private Counter flushedCounter;
+    
+    /**
+     * 注册缓冲区监控指标
+     */
+    @PostConstruct
+    public void initMetrics() {
+        Gauge.builder("sso.user.last-login.buffer.size", pending, Map::size)
+                .description("等待写入的最后登录时间记录数")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("sso.user.last-login.flush.duration")
+                .description("最后登录时间批量写入耗时")
+                .register(meterRegistry);
+        flushedCounter = Counter.builder("sso.user.last-login.flushed")
+                .description("已写入数据库的最后登录时间记录数")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * 记录用户登录
+     * 
+     * @param userId 用户ID
+     * @param lastLogin 登录时间
+     */
+    public void touch(Long userId, LocalDateTime lastLogin) {
+        pending.merge(userId, lastLogin, (existing, latest) -> latest.isAfter(existing) ? latest : existing);
+    }
+    
+    /**
+     * 将缓冲的最后登录时间批量写入数据库
+     */
+    @Scheduled(fixedDelayString = "${app.user.last-login.flush-interval:5000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        
+        // 取出当前所有记录，取出后新到的登录会留在缓冲区等待下一次写入
+        List<Object[]> batchArgs = new ArrayList<>(pending.size());
+        for (Map.Entry<Long, LocalDateTime> entry : pending.entrySet()) {
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                Timestamp lastLogin = Timestamp.valueOf(entry.getValue());
+                batchArgs.add(new Object[] { lastLogin, entry.getKey(), lastLogin });
+            }
+        }
+        
+        if (batchArgs.isEmpty()) {
+            return;
+        }
+        
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            for (int from = 0; from < batchArgs.size(); from += batchSize) {
+                jdbcTemplate.batchUpdate(UPDATE_SQL, batchArgs.subList(from, Math.min(from + batchSize, batchArgs.size())));
+            }
+            flushedCounter.increment(batchArgs.size());
+            evictCachedUsers(batchArgs);
+            logger.debug("批量写入最后登录时间: {} 条", batchArgs.size());
+        } catch (Exception e) {
+            // 写入失败时放回缓冲区，等待下一次重试
+            logger.error("批量写入最后登录时间失败: count={}, error={}", batchArgs.size(), e.getMessage());
+            for (Object[] args : batchArgs) {
+                touch((Long) args[1], ((Timestamp) args[0]).toLocalDateTime());
+            }
+        } finally {
+            sample.stop(flushTimer);
+        }
+    }
+    
+    /**
+     * 清除已写入用户的实体缓存和用户视图查询缓存
+     * 
+     * @param batchArgs 已写入的记录
+     */
+    private void evictCachedUsers(List<Object[]> batchArgs) {
+        Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        for (Object[] args : batchArgs) {
+            cache.evictEntityData(User.class, args[1]);
+        }
+        cache.evictQueryRegion(User.VIEW_QUERY_CACHE_REGION);
+    }
+    
+    /**
+     * 应用关闭前写入剩余记录
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        logger.info("应用关闭，写入剩余的 {} 条最后登录时间记录", pending.size());
+        flush();
+    }
+}
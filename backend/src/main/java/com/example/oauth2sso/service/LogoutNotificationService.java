@@ -1,20 +1,52 @@
 package com.example.oauth2sso.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.sockjs.transport.SockJsSession;
 
 import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 登出通知服务
  * 通过WebSocket实现登出事件的实时通知
+ * 以WebSocket会话ID为主键保存连接，并维护用户、HTTP会话到WebSocket会话的反向索引，
+ * 按用户或HTTP会话推送通知时只访问目标连接。
+ * 每个连接有一个待发送队列，消息按提交顺序由一个虚拟线程依次写出，同一连接同一时刻只有一个写线程；
+ * 入队时检查发送超时和待发送缓冲区上限，慢客户端不会拖慢其他连接和触发登出的请求。
+ * 定期发送心跳并关闭长时间没有响应的连接
  * 
  * @author Luowenqiang
  * @version 1.0.0
@@ -25,13 +57,129 @@ public class LogoutNotificationService {
     
     private static final Logger logger = LoggerFactory.getLogger(LogoutNotificationService.class);
     
-    // 存储WebSocket会话，key为sessionId，value为WebSocketSession
-    private final Map<String, WebSocketSession> webSocketSessions = new ConcurrentHashMap<>();
+    // 常见关闭码单独计数，其余关闭码（如客户端自定义的4000-4999）归入other，限制指标的标签数量
+    private static final List<CloseStatus> KNOWN_CLOSE_STATUSES = List.of(
+            CloseStatus.NORMAL, CloseStatus.GOING_AWAY, CloseStatus.PROTOCOL_ERROR, CloseStatus.NOT_ACCEPTABLE,
+            CloseStatus.NO_STATUS_CODE, CloseStatus.NO_CLOSE_FRAME, CloseStatus.BAD_DATA,
+            CloseStatus.POLICY_VIOLATION, CloseStatus.TOO_BIG_TO_PROCESS, CloseStatus.REQUIRED_EXTENSION,
+            CloseStatus.SERVER_ERROR, CloseStatus.SERVICE_RESTARTED, CloseStatus.SERVICE_OVERLOAD,
+            CloseStatus.TLS_HANDSHAKE_FAILURE, CloseStatus.SESSION_NOT_RELIABLE);
     
-    // 存储用户与WebSocket会话的映射，用于按用户发送通知
-    private final Map<String, String> userSessionMap = new ConcurrentHashMap<>();
+    // WebSocket连接注册信息，key为WebSocket会话ID
+    private final Map<String, SocketRegistration> socketsById = new ConcurrentHashMap<>();
     
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    // 用户到WebSocket会话ID的映射，同一用户可以在多个设备或标签页同时连接
+    private final Map<String, Set<String>> socketsByUser = new ConcurrentHashMap<>();
+    
+    // HTTP会话到WebSocket会话ID的映射，同一HTTP会话可以打开多个标签页
+    private final Map<String, Set<String>> socketsByHttpSession = new ConcurrentHashMap<>();
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // 单次发送允许的最长时间(毫秒)，超出后认为客户端不可靠并关闭连接
+    @Value("${app.websocket.send.time-limit:10000}")
+    private int sendTimeLimit;
+    
+    // 每个连接待发送消息缓冲区的字节上限
+    @Value("${app.websocket.send.buffer-size-limit:524288}")
+    private int bufferSizeLimit;
+    
+    // 缓冲区超出上限时的处理方式：terminate-关闭连接，drop-丢弃最早的待发送消息
+    @Value("${app.websocket.send.overflow-strategy:terminate}")
+    private String overflowStrategy;
+    
+    // 最后一次收到客户端消息或Pong超过该时间(毫秒)的连接视为已断开
+    @Value("${app.websocket.heartbeat.idle-timeout:75000}")
+    private long idleTimeoutMillis;
+    
+    // 单次心跳检查允许占用的最长时间(毫秒)，超出后剩余连接留待下一次调度处理
+    @Value("${app.websocket.heartbeat.max-duration:50}")
+    private long heartbeatMaxDurationMillis;
+    
+    // 待心跳检查的WebSocket会话ID，检查时从队头取出，仍然存活的连接重新放回队尾
+    private final Queue<String> heartbeatQueue = new ConcurrentLinkedQueue<>();
+    
+    // 通知消息序列化器，由Spring配置的ObjectMapper创建以支持Instant等Java时间类型
+    private ObjectWriter notificationWriter;
+    
+    // 消息发送执行器，每个有待发送消息的连接占用一个虚拟线程依次写出，不阻塞触发通知的请求线程
+    private final ExecutorService sendExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    
+    private Timer sendTimer;
+    
+    private Counter limitExceededCounter;
+    
+    private Counter sendFailedCounter;
+    
+    private Counter idleEvictedCounter;
+    
+    private Timer heartbeatTimer;
+    
+    // 按关闭码预先注册的关闭连接计数器，关闭连接时直接查找，不再每次构建和注册
+    private final Map<Integer, Counter> closedCounters = new ConcurrentHashMap<>();
+    
+    private Counter otherClosedCounter;
+    
+    /**
+     * 初始化通知消息序列化器并注册发送相关的监控指标
+     */
+    @PostConstruct
+    public void init() {
+        notificationWriter = objectMapper.writerFor(LogoutNotification.class);
+        
+        sendTimer = Timer.builder("sso.websocket.send.duration")
+                .description("单条WebSocket消息发送耗时，包括写入待发送缓冲区")
+                .register(meterRegistry);
+        limitExceededCounter = Counter.builder("sso.websocket.send.limit-exceeded")
+                .description("发送超时或缓冲区溢出而被关闭的慢连接数")
+                .register(meterRegistry);
+        sendFailedCounter = Counter.builder("sso.websocket.send.failed")
+                .description("发送失败的WebSocket消息数")
+                .register(meterRegistry);
+        Gauge.builder("sso.websocket.send.buffered-bytes", this, LogoutNotificationService::getBufferedBytes)
+                .description("所有连接待发送缓冲区中的字节数")
+                .register(meterRegistry);
+        Gauge.builder("sso.websocket.send.backlogged", this, LogoutNotificationService::getBackloggedCount)
+                .description("待发送缓冲区非空的慢连接数")
+                .register(meterRegistry);
+        
+        idleEvictedCounter = Counter.builder("sso.websocket.heartbeat.evicted")
+                .description("超过空闲时间未响应而被关闭的连接数")
+                .register(meterRegistry);
+        heartbeatTimer = Timer.builder("sso.websocket.heartbeat.duration")
+                .description("单次心跳检查耗时")
+                .register(meterRegistry);
+        Gauge.builder("sso.websocket.connections", socketsById, Map::size)
+                .description("当前注册的WebSocket连接数")
+                .register(meterRegistry);
+        Gauge.builder("sso.websocket.users", socketsByUser, Map::size)
+                .description("当前有WebSocket连接的用户数")
+                .register(meterRegistry);
+        
+        for (CloseStatus closeStatus : KNOWN_CLOSE_STATUSES) {
+            closedCounters.put(closeStatus.getCode(), closedCounter(String.valueOf(closeStatus.getCode())));
+        }
+        otherClosedCounter = closedCounter("other");
+    }
+    
+    private Counter closedCounter(String code) {
+        return Counter.builder("sso.websocket.closed")
+                .description("已关闭的WebSocket连接数，按关闭码区分")
+                .tag("code", code)
+                .register(meterRegistry);
+    }
+    
+    /**
+     * 关闭消息发送执行器
+     */
+    @PreDestroy
+    public void shutdown() {
+        sendExecutor.shutdown();
+    }
     
     /**
      * 注册WebSocket会话
@@ -44,30 +192,46 @@ public class LogoutNotificationService {
         logger.info("注册WebSocket会话: sessionId={}, username={}, wsId={}", 
                    sessionId, username, webSocketSession.getId());
         
-        webSocketSessions.put(sessionId, webSocketSession);
-        userSessionMap.put(username, sessionId);
+        SocketRegistration registration = new SocketRegistration(sessionId, username, new SocketMailbox(webSocketSession),
+                !(webSocketSession instanceof SockJsSession), new AtomicLong(System.currentTimeMillis()));
+        String socketId = webSocketSession.getId();
+        // 反向索引在同一个compute中建立，与removeSocket互斥，并发关闭的连接不会在索引中留下残留ID
+        socketsById.compute(socketId, (id, previous) -> {
+            if (previous != null) {
+                unlink(previous);
+            }
+            link(socketsByUser, username, id);
+            link(socketsByHttpSession, sessionId, id);
+            return registration;
+        });
+        if (!webSocketSession.isOpen()) {
+            // 注册完成前连接已关闭，关闭回调可能已经执行过，由这里移除
+            removeSocket(socketId);
+            return;
+        }
+        heartbeatQueue.offer(socketId);
         
         // 发送连接成功消息
-        sendMessage(webSocketSession, new LogoutNotification(
+        LogoutNotification established = new LogoutNotification(
             "CONNECTION_ESTABLISHED", 
             username, 
             "WebSocket连接已建立", 
             Instant.now()
-        ));
+        );
+        TextMessage message = encode(established);
+        if (message != null) {
+            registration.mailbox().offer(message, established.getType());
+        }
     }
     
     /**
-     * 移除WebSocket会话
+     * 移除HTTP会话下的全部WebSocket会话
      * 
      * @param sessionId HTTP会话ID
      */
     public void removeWebSocketSession(String sessionId) {
-        WebSocketSession webSocketSession = webSocketSessions.remove(sessionId);
-        if (webSocketSession != null) {
-            logger.info("移除WebSocket会话: sessionId={}, wsId={}", sessionId, webSocketSession.getId());
-            
-            // 从用户映射中移除
-            userSessionMap.entrySet().removeIf(entry -> sessionId.equals(entry.getValue()));
+        for (String socketId : socketIds(socketsByHttpSession, sessionId)) {
+            removeSocket(socketId);
         }
     }
     
@@ -82,17 +246,15 @@ public class LogoutNotificationService {
         logger.info("发送登出通知: targetSession={}, username={}, reason={}", 
                    targetSessionId, username, reason);
         
-        WebSocketSession webSocketSession = webSocketSessions.get(targetSessionId);
-        if (webSocketSession != null && webSocketSession.isOpen()) {
-            LogoutNotification notification = new LogoutNotification(
-                "FORCE_LOGOUT", 
-                username, 
-                reason, 
-                Instant.now()
-            );
-            
-            sendMessage(webSocketSession, notification);
-        } else {
+        LogoutNotification notification = new LogoutNotification(
+            "FORCE_LOGOUT", 
+            username, 
+            reason, 
+            Instant.now()
+        );
+        
+        int sent = sendToSockets(socketIds(socketsByHttpSession, targetSessionId), notification);
+        if (sent == 0) {
             logger.warn("目标WebSocket会话不存在或已关闭: sessionId={}", targetSessionId);
         }
     }
@@ -113,112 +275,454 @@ public class LogoutNotificationService {
             Instant.now()
         );
         
-        // 向所有相关会话发送通知
-        webSocketSessions.entrySet().stream()
-            .filter(entry -> {
-                String sessionId = entry.getKey();
-                return userSessionMap.containsValue(sessionId);
-            })
-            .forEach(entry -> {
-                WebSocketSession session = entry.getValue();
-                if (session.isOpen()) {
-                    sendMessage(session, notification);
-                }
-            });
+        // 只向该用户的WebSocket会话发送通知
+        sendToSockets(socketIds(socketsByUser, username), notification);
     }
     
     /**
-     * 发送心跳消息
-     * 保持WebSocket连接活跃
+     * 回复客户端消息
+     * 已注册的连接通过其待发送队列发送，与通知推送按提交顺序写出
+     * 
+     * @param webSocketSession WebSocket会话
+     * @param payload 消息内容
      */
-    public void sendHeartbeat() {
-        logger.debug("发送心跳消息到 {} 个WebSocket会话", webSocketSessions.size());
-        
-        LogoutNotification heartbeat = new LogoutNotification(
-            "HEARTBEAT", 
-            "system", 
-            "心跳检测", 
-            Instant.now()
-        );
-        
-        webSocketSessions.values().stream()
-            .filter(WebSocketSession::isOpen)
-            .forEach(session -> sendMessage(session, heartbeat));
+    public void reply(WebSocketSession webSocketSession, String payload) {
+        SocketRegistration registration = socketsById.get(webSocketSession.getId());
+        TextMessage message = new TextMessage(payload);
+        if (registration != null) {
+            registration.mailbox().offer(message, "REPLY");
+        } else {
+            sendUnregistered(webSocketSession, message, "REPLY");
+        }
     }
     
     /**
-     * 清理关闭的WebSocket会话
+     * 记录收到客户端消息或Pong的时间
+     * 
+     * @param webSocketSession WebSocket会话
      */
-    public void cleanupClosedSessions() {
-        int beforeCount = webSocketSessions.size();
+    public void touch(WebSocketSession webSocketSession) {
+        SocketRegistration registration = socketsById.get(webSocketSession.getId());
+        if (registration != null) {
+            registration.lastActive().set(System.currentTimeMillis());
+        }
+    }
+    
+    /**
+     * 发送心跳并关闭失活的连接
+     * 原生WebSocket连接发送Ping帧，浏览器会自动回复Pong；SockJS连接不支持Ping帧，改为发送HEARTBEAT文本消息，
+     * 浏览器端不回复该消息，SockJS连接的存活判断依赖main.js每30秒发送的ping文本消息。
+     * 超过空闲时间没有收到任何消息的连接被关闭。每次从队头开始检查，存活的连接放回队尾，
+     * 最多处理一轮队列且不超过配置的时间预算；预算用完时未检查的连接留在队头，下一次从这里继续，
+     * 每次至少检查一个连接，预算过小时也能逐步轮转到所有连接
+     */
+    @Scheduled(fixedDelayString = "${app.websocket.heartbeat.interval:25000}",
+               initialDelayString = "${app.websocket.heartbeat.interval:25000}")
+    public void sendHeartbeat() {
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(heartbeatMaxDurationMillis);
+        long idleBefore = System.currentTimeMillis() - idleTimeoutMillis;
+        int budget = heartbeatQueue.size();
+        int checkedCount = 0;
+        int evictedCount = 0;
+        TextMessage heartbeatMessage = null;
         
-        webSocketSessions.entrySet().removeIf(entry -> !entry.getValue().isOpen());
+        while (checkedCount < budget && (checkedCount == 0 || System.nanoTime() < deadline)) {
+            String socketId = heartbeatQueue.poll();
+            if (socketId == null) {
+                break;
+            }
+            checkedCount++;
+            
+            SocketRegistration registration = socketsById.get(socketId);
+            if (registration == null) {
+                // 连接已关闭并被移除
+                continue;
+            }
+            
+            WebSocketSession session = registration.session();
+            if (!session.isOpen()) {
+                removeSocket(socketId);
+                evictedCount++;
+            } else if (registration.lastActive().get() < idleBefore) {
+                logger.info("WebSocket连接空闲超时，关闭连接: wsId={}, username={}", socketId, registration.username());
+                closeAsync(session, CloseStatus.SESSION_NOT_RELIABLE);
+                removeSocket(socketId);
+                evictedCount++;
+            } else if (registration.mailbox().isSendTimeExceeded()) {
+                // 写出一直没有完成，之后可能不再有新消息触发入队检查，由心跳关闭
+                registration.mailbox().terminate("发送超时");
+                removeSocket(socketId);
+            } else {
+                if (registration.pingSupported()) {
+                    registration.mailbox().offer(new PingMessage(), "PING");
+                } else {
+                    // 本次检查的所有SockJS连接共享同一条心跳消息
+                    if (heartbeatMessage == null) {
+                        heartbeatMessage = encode(new LogoutNotification("HEARTBEAT", null, "心跳", Instant.now()));
+                    }
+                    if (heartbeatMessage != null) {
+                        registration.mailbox().offer(heartbeatMessage, "HEARTBEAT");
+                    }
+                }
+                heartbeatQueue.offer(socketId);
+            }
+        }
         
-        int afterCount = webSocketSessions.size();
-        int cleanedCount = beforeCount - afterCount;
+        long elapsedNanos = System.nanoTime() - startNanos;
+        heartbeatTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        idleEvictedCounter.increment(evictedCount);
         
-        if (cleanedCount > 0) {
-            logger.info("清理了 {} 个已关闭的WebSocket会话", cleanedCount);
+        if (evictedCount > 0) {
+            logger.info("关闭了 {} 个失活的WebSocket连接，检查 {} 个，耗时 {} ms", 
+                       evictedCount, checkedCount, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
         }
     }
     
     /**
      * 处理WebSocket会话关闭
+     * 按WebSocket会话ID直接定位注册信息，移除耗时与连接总数无关；
+     * 部署或网络抖动导致大量连接同时断开时只逐条记录DEBUG日志，关闭数量通过sso.websocket.closed指标观察
      * 
      * @param webSocketSession WebSocket会话
      * @param closeStatus 关闭状态
      */
     public void handleWebSocketClose(WebSocketSession webSocketSession, CloseStatus closeStatus) {
-        logger.info("WebSocket会话关闭: wsId={}, status={}", 
-                   webSocketSession.getId(), closeStatus);
+        logger.debug("WebSocket会话关闭: wsId={}, status={}", 
+                    webSocketSession.getId(), closeStatus);
         
         // 从映射中移除该会话
-        String sessionIdToRemove = null;
-        for (Map.Entry<String, WebSocketSession> entry : webSocketSessions.entrySet()) {
-            if (entry.getValue().equals(webSocketSession)) {
-                sessionIdToRemove = entry.getKey();
-                break;
+        if (removeSocket(webSocketSession.getId())) {
+            closedCounters.getOrDefault(closeStatus.getCode(), otherClosedCounter).increment();
+        }
+    }
+    
+    /**
+     * 移除一个WebSocket会话及其在用户、HTTP会话映射中的记录
+     * 
+     * @param socketId WebSocket会话ID
+     * @return 是否存在该会话
+     */
+    private boolean removeSocket(String socketId) {
+        AtomicReference<SocketRegistration> removed = new AtomicReference<>();
+        socketsById.computeIfPresent(socketId, (id, registration) -> {
+            unlink(registration);
+            removed.set(registration);
+            return null;
+        });
+        if (removed.get() == null) {
+            return false;
+        }
+        logger.debug("移除WebSocket会话: sessionId={}, wsId={}", removed.get().httpSessionId(), socketId);
+        return true;
+    }
+    
+    private void unlink(SocketRegistration registration) {
+        String socketId = registration.session().getId();
+        unlink(socketsByUser, registration.username(), socketId);
+        unlink(socketsByHttpSession, registration.httpSessionId(), socketId);
+    }
+    
+    /**
+     * 向一组WebSocket会话发送同一条通知
+     * 
+     * @param socketIds WebSocket会话ID
+     * @param notification 通知消息
+     * @return 已提交发送的会话数
+     */
+    private int sendToSockets(Collection<String> socketIds, LogoutNotification notification) {
+        if (socketIds.isEmpty()) {
+            return 0;
+        }
+        // 所有目标连接共享同一份序列化后的消息
+        TextMessage message = encode(notification);
+        if (message == null) {
+            return 0;
+        }
+        int sent = 0;
+        for (String socketId : socketIds) {
+            SocketRegistration registration = socketsById.get(socketId);
+            if (registration != null && registration.session().isOpen()) {
+                registration.mailbox().offer(message, notification.getType());
+                sent++;
             }
         }
-        
-        if (sessionIdToRemove != null) {
-            removeWebSocketSession(sessionIdToRemove);
+        return sent;
+    }
+    
+    /**
+     * 获取映射中的WebSocket会话ID快照
+     */
+    private static Collection<String> socketIds(Map<String, Set<String>> index, String key) {
+        Set<String> socketIds = key == null ? null : index.get(key);
+        return socketIds == null ? Collections.emptyList() : List.copyOf(socketIds);
+    }
+    
+    // 集合的创建和清空都在compute中完成，避免并发注册的会话被加入一个刚刚被移除的空集合
+    private static void link(Map<String, Set<String>> index, String key, String socketId) {
+        index.compute(key, (k, socketIds) -> {
+            Set<String> result = socketIds != null ? socketIds : ConcurrentHashMap.newKeySet();
+            result.add(socketId);
+            return result;
+        });
+    }
+    
+    private static void unlink(Map<String, Set<String>> index, String key, String socketId) {
+        index.computeIfPresent(key, (k, socketIds) -> {
+            socketIds.remove(socketId);
+            return socketIds.isEmpty() ? null : socketIds;
+        });
+    }
+    
+    /**
+     * 将通知编码为WebSocket文本消息
+     * 每条通知只序列化一次，TextMessage不可变，可以发送给任意多个连接；
+     * 标准WebSocket API只接受String文本帧，UTF-8编码由容器在写出每个连接时完成，
+     * 因此直接序列化为String，不再先生成字节数组再解码
+     * 
+     * @param notification 通知消息
+     * @return 文本消息，编码失败时返回null
+     */
+    private TextMessage encode(LogoutNotification notification) {
+        try {
+            return new TextMessage(notificationWriter.writeValueAsString(notification));
+        } catch (JsonProcessingException e) {
+            logger.error("WebSocket消息编码失败: type={}, error={}", notification.getType(), e.getMessage(), e);
+            return null;
         }
     }
     
     /**
-     * 发送消息到WebSocket会话
+     * 在发送执行器上异步发送消息到未注册的WebSocket会话
      * 
      * @param webSocketSession WebSocket会话
-     * @param notification 通知消息
+     * @param message 已编码的消息
+     * @param type 通知类型，用于日志
      */
-    private void sendMessage(WebSocketSession webSocketSession, LogoutNotification notification) {
+    private void sendUnregistered(WebSocketSession webSocketSession, WebSocketMessage<?> message, String type) {
+        if (!webSocketSession.isOpen()) {
+            logger.warn("WebSocket会话已关闭，无法发送消息: wsId={}", webSocketSession.getId());
+            return;
+        }
         try {
-            if (webSocketSession.isOpen()) {
-                String message = objectMapper.writeValueAsString(notification);
-                webSocketSession.sendMessage(new TextMessage(message));
-                logger.debug("WebSocket消息发送成功: wsId={}, type={}", 
-                           webSocketSession.getId(), notification.getType());
-            } else {
-                logger.warn("WebSocket会话已关闭，无法发送消息: wsId={}", webSocketSession.getId());
-            }
+            sendExecutor.execute(() -> doSend(webSocketSession, message, type));
+        } catch (RejectedExecutionException e) {
+            logger.warn("应用正在关闭，放弃发送WebSocket消息: wsId={}, type={}", webSocketSession.getId(), type);
+        }
+    }
+    
+    private void doSend(WebSocketSession webSocketSession, WebSocketMessage<?> message, String type) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            webSocketSession.sendMessage(message);
+            logger.debug("WebSocket消息发送成功: wsId={}, type={}", 
+                       webSocketSession.getId(), type);
         } catch (Exception e) {
+            sendFailedCounter.increment();
             logger.error("WebSocket消息发送失败: wsId={}, error={}", 
                         webSocketSession.getId(), e.getMessage(), e);
+        } finally {
+            sample.stop(sendTimer);
         }
     }
     
+    /**
+     * 在发送线程上关闭连接
+     * 容器关闭连接时需要等待正在进行的写出完成，慢连接上会阻塞调用方（提交通知的线程或心跳线程）
+     * 
+     * @param webSocketSession WebSocket会话
+     * @param status 关闭状态
+     */
+    private void closeAsync(WebSocketSession webSocketSession, CloseStatus status) {
+        try {
+            sendExecutor.execute(() -> closeQuietly(webSocketSession, status));
+        } catch (RejectedExecutionException e) {
+            // 应用正在关闭，不再有新的写出，直接关闭
+            closeQuietly(webSocketSession, status);
+        }
+    }
+    
+    private static void closeQuietly(WebSocketSession webSocketSession, CloseStatus status) {
+        try {
+            webSocketSession.close(status);
+        } catch (Exception e) {
+            logger.debug("关闭WebSocket连接失败: wsId={}, error={}", webSocketSession.getId(), e.getMessage());
+        }
+    }
+    
+    private long getBufferedBytes() {
+        long bytes = 0;
+        for (SocketRegistration registration : socketsById.values()) {
+            bytes += registration.mailbox().getBufferedBytes();
+        }
+        return bytes;
+    }
+    
+    private long getBackloggedCount() {
+        return socketsById.values().stream()
+            .filter(registration -> registration.mailbox().getBufferedBytes() > 0)
+            .count();
+    }
+    
     /**
      * 获取活跃的WebSocket会话数量
      * 
      * @return 活跃会话数量
      */
     public int getActiveWebSocketCount() {
-        return (int) webSocketSessions.values().stream()
+        return (int) socketsById.values().stream()
+            .map(SocketRegistration::session)
             .filter(WebSocketSession::isOpen)
             .count();
     }
     
+    /**
+     * WebSocket连接注册信息
+     * 
+     * @param httpSessionId 所属HTTP会话ID
+     * @param username 用户名
+     * @param mailbox 连接的待发送队列
+     * @param pingSupported 是否支持Ping帧，SockJS连接不支持
+     * @param lastActive 最后一次收到客户端消息或Pong的时间(毫秒)
+     */
+    private record SocketRegistration(String httpSessionId, String username, SocketMailbox mailbox,
+                                      boolean pingSupported, AtomicLong lastActive) {
+        
+        WebSocketSession session() {
+            return mailbox.session;
+        }
+    }
+    
+    /**
+     * 待发送的消息
+     * 
+     * @param message 已编码的消息
+     * @param type 通知类型，用于日志
+     */
+    private record OutboundMessage(WebSocketMessage<?> message, String type) {
+    }
+    
+    /**
+     * 单个连接的待发送队列
+     * 有消息时由一个虚拟线程按入队顺序依次写出，队列为空时不占用线程。
+     * 同一连接只有一个写线程，因此在入队时检查发送超时和缓冲区上限：
+     * 正在写出的消息超过发送时限，或队列中的字节数超过上限时按溢出策略丢弃最早的消息或关闭连接
+     */
+    private final class SocketMailbox {
+        
+        private final WebSocketSession session;
+        
+        private final Queue<OutboundMessage> messages = new ConcurrentLinkedQueue<>();
+        
+        private final AtomicLong bufferedBytes = new AtomicLong();
+        
+        // 是否已有虚拟线程在写出队列中的消息
+        private final AtomicBoolean draining = new AtomicBoolean();
+        
+        // 当前消息开始写出的时间(毫秒)，没有正在写出的消息时为0
+        private volatile long sendStartedAt;
+        
+        // 超出发送限制后不再接收新消息
+        private volatile boolean terminated;
+        
+        SocketMailbox(WebSocketSession session) {
+            this.session = session;
+        }
+        
+        /**
+         * 消息入队，并在没有写线程时启动一个
+         * 
+         * @param message 已编码的消息
+         * @param type 通知类型，用于日志
+         */
+        void offer(WebSocketMessage<?> message, String type) {
+            if (terminated || !session.isOpen()) {
+                logger.warn("WebSocket会话已关闭，无法发送消息: wsId={}", session.getId());
+                return;
+            }
+            messages.offer(new OutboundMessage(message, type));
+            long buffered = bufferedBytes.addAndGet(message.getPayloadLength());
+            if (isSendTimeExceeded()) {
+                terminate("发送超时");
+                return;
+            }
+            if (buffered > bufferSizeLimit) {
+                if (!"drop".equalsIgnoreCase(overflowStrategy)) {
+                    terminate("待发送缓冲区超出上限");
+                    return;
+                }
+                dropOldest();
+            }
+            schedule();
+        }
+        
+        boolean isSendTimeExceeded() {
+            long started = sendStartedAt;
+            return started > 0 && System.currentTimeMillis() - started > sendTimeLimit;
+        }
+        
+        long getBufferedBytes() {
+            return bufferedBytes.get();
+        }
+        
+        /**
+         * 慢客户端：丢弃待发送的消息并关闭连接，客户端重连后重新注册
+         * 
+         * @param reason 关闭原因，用于日志
+         */
+        void terminate(String reason) {
+            if (terminated) {
+                return;
+            }
+            terminated = true;
+            limitExceededCounter.increment();
+            logger.warn("WebSocket连接发送超限，关闭连接: wsId={}, reason={}", session.getId(), reason);
+            messages.clear();
+            bufferedBytes.set(0);
+            closeAsync(session, CloseStatus.SESSION_NOT_RELIABLE);
+        }
+        
+        private void dropOldest() {
+            while (bufferedBytes.get() > bufferSizeLimit) {
+                OutboundMessage dropped = messages.poll();
+                if (dropped == null) {
+                    return;
+                }
+                bufferedBytes.addAndGet(-dropped.message().getPayloadLength());
+                logger.debug("待发送缓冲区超出上限，丢弃消息: wsId={}, type={}", session.getId(), dropped.type());
+            }
+        }
+        
+        private void schedule() {
+            if (!draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                sendExecutor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+                logger.warn("应用正在关闭，放弃发送WebSocket消息: wsId={}", session.getId());
+            }
+        }
+        
+        // 释放写线程后重新检查队列，避免丢失在最后一次poll与释放之间入队的消息
+        private void drain() {
+            do {
+                OutboundMessage next;
+                while (!terminated && (next = messages.poll()) != null) {
+                    bufferedBytes.addAndGet(-next.message().getPayloadLength());
+                    sendStartedAt = System.currentTimeMillis();
+                    try {
+                        doSend(session, next.message(), next.type());
+                    } finally {
+                        sendStartedAt = 0;
+                    }
+                }
+                draining.set(false);
+            } while (!terminated && !messages.isEmpty() && draining.compareAndSet(false, true));
+        }
+    }
+    
     /**
      * 登出通知消息类
      */
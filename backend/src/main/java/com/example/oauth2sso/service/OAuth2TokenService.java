@@ -1,15 +1,32 @@
 package com.example.oauth2sso.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
-import java.time.Duration;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * OAuth2令牌管理服务
@@ -24,111 +41,126 @@ public class OAuth2TokenService {
     
     private static final Logger logger = LoggerFactory.getLogger(OAuth2TokenService.class);
     
+    private static final String TOKEN_LOOKUP_ENDPOINT = "token-lookup";
+    
     @Value("${spring.security.oauth2.client.registration.github.client-id}")
     private String githubClientId;
     
     @Value("${spring.security.oauth2.client.registration.github.client-secret}")  
     private String githubClientSecret;
     
+    // GitHub API地址
+    @Value("${app.oauth2.github-api-url:https://api.github.com}")
+    private String githubApiUrl;
+    
     @Autowired
     private RestTemplate restTemplate;
     
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // 有效令牌查询结果的缓存时间(毫秒)
+    @Value("${app.oauth2.token-cache.ttl:60000}")
+    private long tokenCacheTtlMillis;
+    
+    // 无效令牌查询结果的缓存时间(毫秒)
+    @Value("${app.oauth2.token-cache.negative-ttl:10000}")
+    private long tokenCacheNegativeTtlMillis;
+    
+    // 令牌查询缓存的最大条目数
+    @Value("${app.oauth2.token-cache.max-size:10000}")
+    private long tokenCacheMaxSize;
+    
+    // 令牌查询缓存，key为令牌哈希，同时保存有效性判断和GitHub用户信息
+    private Cache<String, TokenLookup> tokenCache;
+    
+    // 令牌最近一次失效时的序号，key为令牌哈希；保留时间远大于单次GitHub请求的最长耗时
+    private Cache<String, Long> invalidations;
+    
+    // 失效序号，单调递增
+    private final AtomicLong invalidationSequence = new AtomicLong();
+    
+    // 进行中的GitHub请求，key为端点和令牌哈希
+    private final Map<String, CompletableFuture<Object>> inFlightRequests = new ConcurrentHashMap<>();
+    
+    private Counter coalescedCounter;
+    
     /**
-     * 撤销GitHub Access Token
-     * 使用用户级别的令牌撤销，而不是应用程序级别的撤销
-     * 
-     * @param accessToken 要撤销的访问令牌
-     * @return 撤销是否成功
+     * 初始化令牌查询缓存并注册缓存和请求合并指标
      */
-    public boolean revokeGitHubToken(String accessToken) {
-        if (accessToken == null || accessToken.trim().isEmpty()) {
-            logger.warn("访问令牌为空，跳过撤销操作");
-            return false;
-        }
+    @PostConstruct
+    public void initTokenCache() {
+        tokenCache = Caffeine.newBuilder()
+                .maximumSize(tokenCacheMaxSize)
+                .expireAfter(new Expiry<String, TokenLookup>() {
+                    @Override
+                    public long expireAfterCreate(String hash, TokenLookup lookup, long currentTime) {
+                        long ttl = lookup.valid() ? tokenCacheTtlMillis : tokenCacheNegativeTtlMillis;
+                        return TimeUnit.MILLISECONDS.toNanos(ttl);
+                    }
+                    
+                    @Override
+                    public long expireAfterUpdate(String hash, TokenLookup lookup, long currentTime, long currentDuration) {
+                        return expireAfterCreate(hash, lookup, currentTime);
+                    }
+                    
+                    @Override
+                    public long expireAfterRead(String hash, TokenLookup lookup, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, tokenCache, "githubTokenCache");
+        invalidations = Caffeine.newBuilder()
+                .expireAfterWrite(10, TimeUnit.MINUTES)
+                .build();
         
-        try {
-            // 使用用户级别的令牌撤销API，这是正确的方法
-            String revokeUrl = "https://api.github.com/applications/" + githubClientId + "/grant";
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setBasicAuth(githubClientId, githubClientSecret);
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("Accept", "application/vnd.github.v3+json");
-            headers.set("User-Agent", "OAuth2-SSO-App/1.0.0");
-            
-            // 使用grant API撤销用户的授权，而不是所有令牌
-            Map<String, String> body = Map.of("access_token", accessToken);
-            HttpEntity<Map<String, String>> entity = new HttpEntity<>(body, headers);
-            
-            logger.info("开始撤销GitHub用户授权: token={}", maskToken(accessToken));
-            
-            ResponseEntity<String> response = restTemplate.exchange(
-                revokeUrl, HttpMethod.DELETE, entity, String.class);
-            
-            if (response.getStatusCode() == HttpStatus.NO_CONTENT) {
-                logger.info("GitHub用户授权撤销成功: token={}", maskToken(accessToken));
-                return true;
-            } else {
-                logger.warn("GitHub用户授权撤销响应异常: status={}, token={}", 
-                           response.getStatusCode(), maskToken(accessToken));
-                return false;
-            }
-            
-        } catch (Exception e) {
-            logger.error("GitHub用户授权撤销失败: token={}, error={}", 
-                        maskToken(accessToken), e.getMessage());
-            
-            // 撤销失败时，尝试备用方案：直接检查令牌状态
-            logger.info("撤销失败，将检查令牌是否仍然有效");
-            boolean isStillValid = validateToken(accessToken);
-            if (!isStillValid) {
-                logger.info("令牌已失效，视为撤销成功");
-                return true;
-            }
-            
-            return false;
-        }
+        coalescedCounter = Counter.builder("sso.github.requests.coalesced")
+                .description("复用进行中请求而未实际发出的GitHub请求数")
+                .register(meterRegistry);
     }
     
     /**
-     * 备用的令牌撤销方法
-     * 当主要撤销方法失败时使用，直接向用户授权端点发送撤销请求
+     * 调用GitHub授权撤销API
+     * 只发起一次撤销请求，请求异常直接抛出，由调用方决定是否重试或做进一步检查
      * 
-     * @param accessToken 访问令牌
-     * @return 撤销是否成功
+     * @param accessToken 要撤销的访问令牌
+     * @return GitHub是否确认撤销成功
      */
-    public boolean revokeTokenDirectly(String accessToken) {
-        try {
-            // 备用方案：直接使用令牌向GitHub发送删除授权请求
-            String deleteUrl = "https://api.github.com/user";
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setBearerAuth(accessToken);
-            headers.set("Accept", "application/vnd.github.v3+json");
-            headers.set("User-Agent", "OAuth2-SSO-App/1.0.0");
-            
-            HttpEntity<?> entity = new HttpEntity<>(headers);
-            
-            // 先验证令牌有效性
-            ResponseEntity<String> response = restTemplate.exchange(
-                deleteUrl, HttpMethod.GET, entity, String.class);
-            
-            if (response.getStatusCode() == HttpStatus.OK) {
-                logger.info("令牌验证成功，但无法直接撤销，需用户手动处理: token={}", maskToken(accessToken));
-                return false;
-            }
-            
+    public boolean revokeGitHubGrant(String accessToken) {
+        // 使用用户级别的令牌撤销API，这是正确的方法
+        String revokeUrl = githubApiUrl + "/applications/" + githubClientId + "/grant";
+        
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBasicAuth(githubClientId, githubClientSecret);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("Accept", "application/vnd.github.v3+json");
+        headers.set("User-Agent", "OAuth2-SSO-App/1.0.0");
+        
+        // 使用grant API撤销用户的授权，而不是所有令牌
+        Map<String, String> body = Map.of("access_token", accessToken);
+        HttpEntity<Map<String, String>> entity = new HttpEntity<>(body, headers);
+        
+        logger.info("开始撤销GitHub用户授权: token={}", maskToken(accessToken));
+        
+        ResponseEntity<String> response = restTemplate.exchange(
+            revokeUrl, HttpMethod.DELETE, entity, String.class);
+        
+        if (response.getStatusCode() == HttpStatus.NO_CONTENT) {
+            logger.info("GitHub用户授权撤销成功: token={}", maskToken(accessToken));
+            invalidateToken(accessToken);
             return true;
-            
-        } catch (Exception e) {
-            logger.debug("备用撤销方法失败，令牌可能已失效: token={}, error={}", 
-                        maskToken(accessToken), e.getMessage());
-            return true; // 如果验证失败，可能令牌已经失效
         }
+        
+        logger.warn("GitHub用户授权撤销响应异常: status={}, token={}", 
+                   response.getStatusCode(), maskToken(accessToken));
+        return false;
     }
     
     /**
      * 验证令牌是否有效
+     * 结果来自令牌查询缓存，缓存未命中时才请求GitHub
      * 
      * @param accessToken 访问令牌
      * @return 令牌是否有效
@@ -138,43 +170,152 @@ public class OAuth2TokenService {
             return false;
         }
         
-        try {
-            String validateUrl = "https://api.github.com/user";
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setBearerAuth(accessToken);
-            headers.set("Accept", "application/vnd.github.v3+json");
-            headers.set("User-Agent", "OAuth2-SSO-App/1.0.0");
-            headers.set("Connection", "close"); // 避免连接池问题
-            
-            HttpEntity<?> entity = new HttpEntity<>(headers);
-            
-            ResponseEntity<String> response = restTemplate.exchange(
-                validateUrl, HttpMethod.GET, entity, String.class);
-            
-            boolean isValid = response.getStatusCode() == HttpStatus.OK;
-            logger.debug("令牌验证结果: token={}, valid={}", maskToken(accessToken), isValid);
-            
-            return isValid;
-            
-        } catch (Exception e) {
-            logger.debug("令牌验证失败: token={}, error={}", 
-                        maskToken(accessToken), e.getMessage());
+        boolean isValid = lookupToken(accessToken).valid();
+        logger.debug("令牌验证结果: token={}, valid={}", maskToken(accessToken), isValid);
+        return isValid;
+    }
+    
+    /**
+     * 确认令牌是否仍然有效
+     * 与validateToken不同，网络异常或GitHub服务端错误时无法确定令牌状态，抛出异常而不是视为无效
+     * 
+     * @param accessToken 访问令牌
+     * @return 令牌是否有效
+     * @throws IllegalStateException 无法确定令牌状态
+     */
+    public boolean checkTokenActive(String accessToken) {
+        if (accessToken == null || accessToken.trim().isEmpty()) {
             return false;
         }
+        TokenLookup lookup = findToken(accessToken);
+        if (lookup == null) {
+            throw new IllegalStateException("无法确定令牌状态: token=" + maskToken(accessToken));
+        }
+        return lookup.valid();
     }
     
     /**
      * 获取令牌信息
-     * 用于调试和诊断令牌状态
+     * 用于调试和诊断令牌状态，与validateToken共用同一份缓存的GitHub用户信息
      * 
      * @param accessToken 访问令牌
      * @return 令牌信息
      */
     public Map<String, Object> getTokenInfo(String accessToken) {
+        if (accessToken == null || accessToken.trim().isEmpty()) {
+            return null;
+        }
+        return lookupToken(accessToken).userInfo();
+    }
+    
+    /**
+     * 使令牌的缓存查询结果失效
+     * 令牌被撤销后调用，确保后续验证不会读到旧的有效结果：
+     * 失效前已发出的GitHub请求返回后不会再写入缓存，之后的查询也不会复用这些请求
+     * 
+     * @param accessToken 访问令牌
+     */
+    public void invalidateToken(String accessToken) {
+        if (accessToken == null) {
+            return;
+        }
+        String tokenHash = hashToken(accessToken);
+        // 与lookupToken写入缓存在同一个键上加锁执行，记录失效序号和删除缓存对写入方是原子的
+        tokenCache.asMap().compute(tokenHash, (hash, existing) -> {
+            invalidations.put(hash, invalidationSequence.incrementAndGet());
+            return null;
+        });
+        inFlightRequests.remove(TOKEN_LOOKUP_ENDPOINT + "#" + tokenHash);
+    }
+    
+    /**
+     * 查询令牌对应的GitHub用户，无法确定令牌状态时视为无效
+     * 
+     * @param accessToken 访问令牌
+     * @return 查询结果
+     */
+    private TokenLookup lookupToken(String accessToken) {
+        TokenLookup lookup = findToken(accessToken);
+        return lookup != null ? lookup : TokenLookup.INVALID;
+    }
+    
+    /**
+     * 查询令牌对应的GitHub用户
+     * 优先读取缓存；网络异常等无法确定令牌状态的结果不写入缓存，
+     * 请求期间令牌被失效时结果也不写入缓存
+     * 
+     * @param accessToken 访问令牌
+     * @return 查询结果，无法确定令牌状态时返回null
+     */
+    private TokenLookup findToken(String accessToken) {
+        String tokenHash = hashToken(accessToken);
+        TokenLookup lookup = tokenCache.getIfPresent(tokenHash);
+        if (lookup == null) {
+            lookup = coalesce(TOKEN_LOOKUP_ENDPOINT, accessToken, () -> {
+                long startedAt = invalidationSequence.get();
+                TokenLookup fetched = fetchGitHubUser(accessToken);
+                if (fetched != null) {
+                    tokenCache.asMap().compute(tokenHash, (hash, existing) -> {
+                        Long invalidatedAt = invalidations.getIfPresent(hash);
+                        return invalidatedAt != null && invalidatedAt > startedAt ? existing : fetched;
+                    });
+                }
+                return fetched;
+            });
+        }
+        return lookup;
+    }
+    
+    /**
+     * 合并并发的相同GitHub请求
+     * 同一端点、同一令牌的并发调用共享一个进行中的请求，只有第一个调用方真正发起请求，
+     * 其余调用方等待并复用其结果或异常
+     * 
+     * @param endpoint 请求标识，不同返回类型的调用必须使用不同的标识
+     * @param accessToken 访问令牌
+     * @param call 实际发起请求的逻辑
+     * @return 请求结果
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T coalesce(String endpoint, String accessToken, Supplier<T> call) {
+        String key = endpoint + "#" + hashToken(accessToken);
+        CompletableFuture<Object> ownRequest = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = inFlightRequests.putIfAbsent(key, ownRequest);
+        
+        if (inFlight != null) {
+            coalescedCounter.increment();
+            logger.debug("复用进行中的GitHub请求: endpoint={}, token={}", endpoint, maskToken(accessToken));
+            try {
+                return (T) inFlight.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+        
+        try {
+            T result = call.get();
+            ownRequest.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            ownRequest.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightRequests.remove(key, ownRequest);
+        }
+    }
+    
+    /**
+     * 请求GitHub用户信息接口
+     * 
+     * @param accessToken 访问令牌
+     * @return 查询结果，无法确定令牌状态时返回null
+     */
+    @SuppressWarnings("unchecked")
+    private TokenLookup fetchGitHubUser(String accessToken) {
         try {
-            String tokenInfoUrl = "https://api.github.com/user";
-            
             HttpHeaders headers = new HttpHeaders();
             headers.setBearerAuth(accessToken);
             headers.set("Accept", "application/vnd.github.v3+json");
@@ -183,16 +324,20 @@ public class OAuth2TokenService {
             HttpEntity<?> entity = new HttpEntity<>(headers);
             
             ResponseEntity<Map> response = restTemplate.exchange(
-                tokenInfoUrl, HttpMethod.GET, entity, Map.class);
+                githubApiUrl + "/user", HttpMethod.GET, entity, Map.class);
             
-            if (response.getStatusCode() == HttpStatus.OK) {
+            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
                 Map<String, Object> userInfo = response.getBody();
                 logger.info("令牌信息获取成功: user={}", userInfo.get("login"));
-                return userInfo;
+                return new TokenLookup(true, userInfo);
             }
             
-            return null;
+            return TokenLookup.INVALID;
             
+        } catch (HttpClientErrorException e) {
+            // 401/403等客户端错误说明令牌无效，可以缓存否定结果
+            logger.debug("令牌验证失败: token={}, status={}", maskToken(accessToken), e.getStatusCode());
+            return TokenLookup.INVALID;
         } catch (Exception e) {
             logger.error("获取令牌信息失败: token={}, error={}", 
                         maskToken(accessToken), e.getMessage());
@@ -200,6 +345,32 @@ public class OAuth2TokenService {
         }
     }
     
+    /**
+     * 令牌查询结果
+     * 
+     * @param valid 令牌是否有效
+     * @param userInfo GitHub用户信息，令牌无效时为null
+     */
+    private record TokenLookup(boolean valid, Map<String, Object> userInfo) {
+        static final TokenLookup INVALID = new TokenLookup(false, null);
+    }
+    
+    /**
+     * 计算令牌的SHA-256哈希
+     * 用于在内存索引和接口中标识令牌，避免保存或暴露令牌原文
+     * 
+     * @param token 原始令牌
+     * @return 十六进制哈希值
+     */
+    public static String hashToken(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256算法不可用", e);
+        }
+    }
+    
     /**
      * 遮蔽令牌敏感信息用于日志记录
      * 
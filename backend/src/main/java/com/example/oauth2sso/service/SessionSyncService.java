@@ -1,16 +1,30 @@
 package com.example.oauth2sso.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.session.SessionInformation;
 import org.springframework.security.core.session.SessionRegistry;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 会话同步服务
@@ -33,7 +47,22 @@ public class SessionSyncService {
     private LogoutNotificationService logoutNotificationService;
     
     @Autowired
-    private OAuth2TokenService oauth2TokenService;
+    private TokenRevocationQueue tokenRevocationQueue;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // 单次清理允许占用的最长时间(毫秒)，超出后剩余会话留待下一次调度处理
+    @Value("${app.session.cleanup.max-duration:50}")
+    private long cleanupMaxDurationMillis;
+    
+    // 是否并发执行单点登出中的会话失效和通知推送
+    @Value("${app.session.logout.fan-out-enabled:true}")
+    private boolean fanOutEnabled;
+    
+    // 所有单点登出请求共享的最大并发处理会话数
+    @Value("${app.session.logout.max-concurrency:64}")
+    private int fanOutMaxConcurrency;
     
     // 用户会话映射表 - 用于跟踪用户的所有会话
     private final Map<String, Set<String>> userSessionMap = new ConcurrentHashMap<>();
@@ -41,6 +70,44 @@ public class SessionSyncService {
     // 会话元数据存储
     private final Map<String, SessionMetadata> sessionMetadataMap = new ConcurrentHashMap<>();
     
+    // 待检查会话队列 - 按注册先后排列，清理时从队头取出，仍有效的会话重新放回队尾
+    private final Queue<String> cleanupQueue = new ConcurrentLinkedQueue<>();
+    
+    // 单点登出并发任务执行器，每个任务运行在独立的虚拟线程上
+    private final ExecutorService fanOutExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    
+    private Semaphore fanOutPermits;
+    
+    private Counter reclaimedCounter;
+    
+    private Timer cleanupTimer;
+    
+    /**
+     * 初始化并发控制并注册会话清理相关的监控指标
+     */
+    @PostConstruct
+    public void init() {
+        fanOutPermits = new Semaphore(Math.max(1, fanOutMaxConcurrency));
+        
+        reclaimedCounter = Counter.builder("sso.session.cleanup.reclaimed")
+                .description("过期会话清理回收的会话数")
+                .register(meterRegistry);
+        cleanupTimer = Timer.builder("sso.session.cleanup.duration")
+                .description("单次过期会话清理耗时")
+                .register(meterRegistry);
+        Gauge.builder("sso.session.tracked", sessionMetadataMap, Map::size)
+                .description("当前跟踪的会话元数据数量")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * 关闭单点登出并发任务执行器
+     */
+    @PreDestroy
+    public void shutdown() {
+        fanOutExecutor.shutdown();
+    }
+    
     /**
      * 注册用户会话
      * 
@@ -57,7 +124,9 @@ public class SessionSyncService {
         
         // 存储会话元数据
         SessionMetadata metadata = new SessionMetadata(username, sessionId, accessToken, Instant.now());
-        sessionMetadataMap.put(sessionId, metadata);
+        if (sessionMetadataMap.put(sessionId, metadata) == null) {
+            cleanupQueue.offer(sessionId);
+        }
         
         int currentSessionCount = userSessionMap.get(username).size();
         logger.info("✅ 会话注册成功: 用户 {} 当前有 {} 个活跃会话", username, currentSessionCount);
@@ -100,44 +169,58 @@ public class SessionSyncService {
         List<String> failedSessions = new ArrayList<>();
         String accessToken = null;
         
-        // 遍历用户的所有会话
+        // 收集需要失效的会话（跳过当前会话，最后处理），并在会话元数据被清理前取得访问令牌
+        List<String> targetSessions = new ArrayList<>();
         for (String sessionId : new HashSet<>(userSessions)) {
             if (sessionId.equals(currentSessionId)) {
-                continue; // 跳过当前会话，最后处理
+                continue;
             }
+            targetSessions.add(sessionId);
             
-            try {
-                // 获取会话元数据
-                SessionMetadata metadata = sessionMetadataMap.get(sessionId);
-                if (metadata != null && accessToken == null) {
-                    accessToken = metadata.getAccessToken();
+            SessionMetadata metadata = sessionMetadataMap.get(sessionId);
+            if (metadata != null && accessToken == null) {
+                accessToken = metadata.getAccessToken();
+            }
+        }
+        
+        // 撤销OAuth2令牌（如果有），仅提交到后台撤销队列，不等待GitHub响应
+        TokenRevocationQueue.RevocationStatus revocation = accessToken != null ? revokeUserToken(accessToken) : null;
+        
+        if (fanOutEnabled) {
+            // 并发模式：会话失效和通知推送同时进行
+            Map<String, CompletableFuture<Boolean>> sessionFutures = new LinkedHashMap<>();
+            for (String sessionId : targetSessions) {
+                sessionFutures.put(sessionId, CompletableFuture.supplyAsync(
+                        () -> expireAndNotifyWithPermit(sessionId, username), fanOutExecutor));
+            }
+            
+            sessionFutures.forEach((sessionId, future) -> {
+                if (future.join()) {
+                    expiredSessions.add(sessionId);
+                } else {
+                    failedSessions.add(sessionId);
+                }
+            });
+        } else {
+            // 顺序模式：逐个处理会话
+            for (String sessionId : targetSessions) {
+                if (expireAndNotify(sessionId, username)) {
+                    expiredSessions.add(sessionId);
+                } else {
+                    failedSessions.add(sessionId);
                 }
-                
-                // 使会话失效
-                expireSession(sessionId);
-                expiredSessions.add(sessionId);
-                
-                // 发送实时通知
-                logoutNotificationService.sendLogoutNotification(sessionId, username, "单点登出");
-                
-            } catch (Exception e) {
-                logger.error("会话失效失败: sessionId={}, error={}", sessionId, e.getMessage());
-                failedSessions.add(sessionId);
             }
         }
         
         // 清理用户会话映射
         userSessionMap.remove(username);
         
-        // 撤销OAuth2令牌（如果有）
-        boolean tokenRevoked = false;
-        if (accessToken != null) {
-            tokenRevoked = revokeUserToken(accessToken);
-        }
-        
         result.setExpiredSessions(expiredSessions);
         result.setFailedSessions(failedSessions);
-        result.setTokenRevoked(tokenRevoked);
+        if (revocation != null) {
+            result.setTokenRevocationId(revocation.tokenHash());
+            result.setTokenRevoked(revocation.state() == TokenRevocationQueue.RevocationState.REVOKED);
+        }
         result.setEndTime(Instant.now());
         result.setSuccess(failedSessions.isEmpty());
         result.setMessage(String.format("成功登出 %d 个会话，失败 %d 个会话", 
@@ -147,6 +230,49 @@ public class SessionSyncService {
         return result;
     }
     
+    /**
+     * 在全局并发许可内使会话失效并推送登出通知
+     * 
+     * @param sessionId 会话ID
+     * @param username 用户名
+     * @return 是否处理成功
+     */
+    private boolean expireAndNotifyWithPermit(String sessionId, String username) {
+        try {
+            fanOutPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("等待并发许可时被中断: sessionId={}", sessionId);
+            return false;
+        }
+        try {
+            return expireAndNotify(sessionId, username);
+        } finally {
+            fanOutPermits.release();
+        }
+    }
+    
+    /**
+     * 使会话失效并推送登出通知
+     * 
+     * @param sessionId 会话ID
+     * @param username 用户名
+     * @return 是否处理成功
+     */
+    private boolean expireAndNotify(String sessionId, String username) {
+        try {
+            // 使会话失效
+            expireSession(sessionId);
+            
+            // 发送实时通知
+            logoutNotificationService.sendLogoutNotification(sessionId, username, "单点登出");
+            return true;
+        } catch (Exception e) {
+            logger.error("会话失效失败: sessionId={}, error={}", sessionId, e.getMessage());
+            return false;
+        }
+    }
+    
     /**
      * 使指定会话失效
      * 
@@ -154,17 +280,11 @@ public class SessionSyncService {
      */
     private void expireSession(String sessionId) {
         try {
-            // 通过SessionRegistry使会话失效
-            List<Object> principals = sessionRegistry.getAllPrincipals();
-            for (Object principal : principals) {
-                List<SessionInformation> sessions = sessionRegistry.getAllSessions(principal, false);
-                for (SessionInformation session : sessions) {
-                    if (sessionId.equals(session.getSessionId())) {
-                        session.expireNow();
-                        logger.debug("会话已失效: sessionId={}", sessionId);
-                        break;
-                    }
-                }
+            // 通过SessionRegistry按会话ID直接定位并使会话失效，避免遍历所有主体
+            SessionInformation session = sessionRegistry.getSessionInformation(sessionId);
+            if (session != null) {
+                session.expireNow();
+                logger.debug("会话已失效: sessionId={}", sessionId);
             }
             
             // 清理会话元数据
@@ -178,67 +298,80 @@ public class SessionSyncService {
     
     /**
      * 撤销用户令牌
+     * 将令牌提交到后台撤销队列，撤销结果可通过撤销状态接口查询
      * 
      * @param accessToken 访问令牌
-     * @return 撤销是否成功
+     * @return 撤销任务状态，提交失败时返回null
      */
-    private boolean revokeUserToken(String accessToken) {
+    private TokenRevocationQueue.RevocationStatus revokeUserToken(String accessToken) {
         try {
             if (accessToken == null || accessToken.isEmpty()) {
                 logger.warn("访问令牌为空，跳过令牌撤销");
-                return false;
+                return null;
             }
             
-            logger.info("开始撤销用户令牌");
-            boolean result = oauth2TokenService.revokeGitHubToken(accessToken);
-            
-            if (result) {
-                logger.info("用户令牌撤销成功");
-            } else {
-                logger.warn("用户令牌撤销失败");
-            }
-            
-            return result;
+            TokenRevocationQueue.RevocationStatus status = tokenRevocationQueue.submit(accessToken);
+            logger.info("用户令牌撤销已提交: tokenHash={}, state={}", status.tokenHash(), status.state());
+            return status;
         } catch (Exception e) {
-            logger.error("撤销令牌时发生异常: error={}", e.getMessage(), e);
-            return false;
+            logger.error("提交令牌撤销时发生异常: error={}", e.getMessage(), e);
+            return null;
         }
     }
     
     /**
      * 清理过期会话
-     * 定期清理已过期的会话信息
+     * 按配置的间隔定期执行，每次最多处理一轮队列且不超过配置的时间预算，
+     * 未处理完的会话留待下一次调度
      */
+    @Scheduled(fixedDelayString = "${app.session.cleanup.interval:60000}",
+               initialDelayString = "${app.session.cleanup.interval:60000}")
     public void cleanupExpiredSessions() {
         logger.debug("开始清理过期会话");
         
-        Iterator<Map.Entry<String, SessionMetadata>> iterator = sessionMetadataMap.entrySet().iterator();
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(cleanupMaxDurationMillis);
+        int budget = cleanupQueue.size();
+        int checkedCount = 0;
         int cleanedCount = 0;
         
-        while (iterator.hasNext()) {
-            Map.Entry<String, SessionMetadata> entry = iterator.next();
-            String sessionId = entry.getKey();
-            SessionMetadata metadata = entry.getValue();
+        while (checkedCount < budget && System.nanoTime() < deadline) {
+            String sessionId = cleanupQueue.poll();
+            if (sessionId == null) {
+                break;
+            }
+            checkedCount++;
+            
+            SessionMetadata metadata = sessionMetadataMap.get(sessionId);
+            if (metadata == null) {
+                // 会话已在登出流程中被移除
+                continue;
+            }
             
             // 检查会话是否仍然有效
             if (isSessionExpired(sessionId)) {
-                iterator.remove();
+                sessionMetadataMap.remove(sessionId);
                 
                 // 从用户会话映射中移除
-                Set<String> userSessions = userSessionMap.get(metadata.getUsername());
-                if (userSessions != null) {
+                userSessionMap.computeIfPresent(metadata.getUsername(), (username, userSessions) -> {
                     userSessions.remove(sessionId);
-                    if (userSessions.isEmpty()) {
-                        userSessionMap.remove(metadata.getUsername());
-                    }
-                }
+                    return userSessions.isEmpty() ? null : userSessions;
+                });
                 
                 cleanedCount++;
+            } else {
+                cleanupQueue.offer(sessionId);
             }
         }
         
+        long elapsedNanos = System.nanoTime() - startNanos;
+        cleanupTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        reclaimedCounter.increment(cleanedCount);
+        
         if (cleanedCount > 0) {
-            logger.info("清理了 {} 个过期会话", cleanedCount);
+            logger.info("清理了 {} 个过期会话，检查 {} 个，耗时 {} ms，剩余待检查 {} 个", 
+                       cleanedCount, checkedCount, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), 
+                       cleanupQueue.size());
         }
     }
     
@@ -250,14 +383,9 @@ public class SessionSyncService {
      */
     private boolean isSessionExpired(String sessionId) {
         try {
-            List<Object> principals = sessionRegistry.getAllPrincipals();
-            for (Object principal : principals) {
-                List<SessionInformation> sessions = sessionRegistry.getAllSessions(principal, false);
-                for (SessionInformation session : sessions) {
-                    if (sessionId.equals(session.getSessionId())) {
-                        return session.isExpired();
-                    }
-                }
+            SessionInformation session = sessionRegistry.getSessionInformation(sessionId);
+            if (session != null) {
+                return session.isExpired();
             }
             return true; // 如果找不到会话，认为已过期
         } catch (Exception e) {
@@ -308,6 +436,7 @@ public class SessionSyncService {
         private List<String> expiredSessions = new ArrayList<>();
         private List<String> failedSessions = new ArrayList<>();
         private boolean tokenRevoked;
+        private String tokenRevocationId;
         private boolean success;
         private String message;
         private Instant startTime;
@@ -326,6 +455,9 @@ public class SessionSyncService {
         public boolean isTokenRevoked() { return tokenRevoked; }
         public void setTokenRevoked(boolean tokenRevoked) { this.tokenRevoked = tokenRevoked; }
         
+        public String getTokenRevocationId() { return tokenRevocationId; }
+        public void setTokenRevocationId(String tokenRevocationId) { this.tokenRevocationId = tokenRevocationId; }
+        
         public boolean isSuccess() { return success; }
         public void setSuccess(boolean success) { this.success = success; }
         
@@ -0,0 +1,85 @@
+package com.example.oauth2sso.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 本地桩令牌撤销提供者
+ * 不访问GitHub，仅在内存中记录被撤销的令牌，用于本地开发和测试
+ * 可通过配置模拟撤销延迟和前若干次失败，以验证撤销队列的重试行为
+ * 
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+@Component
+@ConditionalOnProperty(name = "app.oauth2.revocation.provider", havingValue = "stub")
+public class StubTokenRevocationProvider implements TokenRevocationProvider {
+    
+    private static final Logger logger = LoggerFactory.getLogger(StubTokenRevocationProvider.class);
+    
+    // 模拟的撤销耗时(毫秒)
+    @Value("${app.oauth2.revocation.stub.latency:0}")
+    private long latencyMillis;
+    
+    // 每个令牌在成功撤销前模拟失败的次数
+    @Value("${app.oauth2.revocation.stub.failures-before-success:0}")
+    private int failuresBeforeSuccess;
+    
+    // 已撤销的令牌哈希
+    private final Set<String> revokedTokens = ConcurrentHashMap.newKeySet();
+    
+    // 每个令牌的撤销尝试次数
+    private final Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+    
+    @Override
+    public boolean revoke(String accessToken) {
+        String tokenHash = OAuth2TokenService.hashToken(accessToken);
+        simulateLatency();
+        
+        int attempt = attempts.computeIfAbsent(tokenHash, k -> new AtomicInteger()).incrementAndGet();
+        if (attempt <= failuresBeforeSuccess) {
+            logger.info("桩提供者模拟撤销失败: tokenHash={}, attempt={}", tokenHash, attempt);
+            throw new IllegalStateException("模拟撤销失败");
+        }
+        
+        revokedTokens.add(tokenHash);
+        logger.info("桩提供者撤销令牌成功: tokenHash={}, attempt={}", tokenHash, attempt);
+        return true;
+    }
+    
+    @Override
+    public boolean isTokenActive(String accessToken) {
+        return !revokedTokens.contains(OAuth2TokenService.hashToken(accessToken));
+    }
+    
+    /**
+     * 获取撤销尝试次数
+     * 
+     * @param accessToken 访问令牌
+     * @return 尝试次数
+     */
+    public int getAttemptCount(String accessToken) {
+        AtomicInteger count = attempts.get(OAuth2TokenService.hashToken(accessToken));
+        return count != null ? count.get() : 0;
+    }
+    
+    private void simulateLatency() {
+        if (latencyMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.oauth2sso.service;
+
+/**
+ * 令牌撤销提供者
+ * 封装向OAuth2授权服务器撤销令牌的具体调用，由TokenRevocationQueue在后台调用
+ * 
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+public interface TokenRevocationProvider {
+    
+    /**
+     * 撤销访问令牌
+     * 返回false或抛出异常都视为本次撤销失败，由调用方决定是否重试
+     * 
+     * @param accessToken 访问令牌
+     * @return 撤销是否成功
+     */
+    boolean revoke(String accessToken);
+    
+    /**
+     * 检查访问令牌是否仍然有效
+     * 用于重试次数耗尽后确认令牌是否已经失效；无法确定令牌状态时应抛出异常，调用方按仍然有效处理
+     * 
+     * @param accessToken 访问令牌
+     * @return 令牌是否有效
+     */
+    boolean isTokenActive(String accessToken);
+}
@@ -0,0 +1,392 @@
+package com.example.oauth2sso.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 令牌撤销队列
+ * 登出流程只负责提交撤销任务并立即返回，由固定数量的后台工作线程调用TokenRevocationProvider完成撤销。
+ * 同一令牌按哈希去重，失败后按指数退避重试，重试耗尽后再确认令牌是否已经失效。
+ * 任务只保存在内存中：应用关闭时在限定时间内把未完成的任务各立即尝试一次，仍未撤销的令牌记录到日志。
+ * 
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+@Service
+public class TokenRevocationQueue {
+    
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationQueue.class);
+    
+    // 工作线程空闲时检查是否停止的间隔(毫秒)
+    private static final long IDLE_POLL_MILLIS = 500;
+    
+    @Autowired
+    private TokenRevocationProvider revocationProvider;
+    
+    @Autowired
+    private OAuth2TokenService oauth2TokenService;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // 后台工作线程数
+    @Value("${app.oauth2.revocation.workers:4}")
+    private int workerCount;
+    
+    // 工作线程每次最多取出的到期任务数
+    @Value("${app.oauth2.revocation.batch-size:20}")
+    private int batchSize;
+    
+    // 等待中的任务上限，超过后新任务直接标记为失败
+    @Value("${app.oauth2.revocation.capacity:10000}")
+    private int capacity;
+    
+    // 最大尝试次数
+    @Value("${app.oauth2.revocation.max-attempts:5}")
+    private int maxAttempts;
+    
+    // 首次重试的退避时间(毫秒)，之后每次翻倍
+    @Value("${app.oauth2.revocation.initial-backoff:1000}")
+    private long initialBackoffMillis;
+    
+    // 退避时间上限(毫秒)
+    @Value("${app.oauth2.revocation.max-backoff:60000}")
+    private long maxBackoffMillis;
+    
+    // 已结束任务的状态保留时间(毫秒)
+    @Value("${app.oauth2.revocation.status-retention:3600000}")
+    private long statusRetentionMillis;
+    
+    // 应用关闭时等待未完成任务的最长时间(毫秒)
+    @Value("${app.oauth2.revocation.shutdown-timeout:10000}")
+    private long shutdownTimeoutMillis;
+    
+    // 按令牌哈希索引的任务，用于去重和状态查询
+    private final Map<String, RevocationTask> tasks = new ConcurrentHashMap<>();
+    
+    // 待执行任务，按下次执行时间排序
+    private final DelayQueue<RevocationTask> pendingQueue = new DelayQueue<>();
+    
+    private final List<Thread> workers = new ArrayList<>();
+    
+    private volatile boolean running = true;
+    
+    private Counter revokedCounter;
+    
+    private Counter failedCounter;
+    
+    private Counter retryCounter;
+    
+    /**
+     * 启动工作线程并注册监控指标
+     */
+    @PostConstruct
+    public void start() {
+        revokedCounter = Counter.builder("sso.token.revocation.revoked")
+                .description("撤销成功的令牌数")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("sso.token.revocation.failed")
+                .description("重试耗尽后仍撤销失败的令牌数")
+                .register(meterRegistry);
+        retryCounter = Counter.builder("sso.token.revocation.retries")
+                .description("令牌撤销重试次数")
+                .register(meterRegistry);
+        Gauge.builder("sso.token.revocation.pending", pendingQueue, DelayQueue::size)
+                .description("等待执行的令牌撤销任务数")
+                .register(meterRegistry);
+        
+        for (int i = 0; i < Math.max(1, workerCount); i++) {
+            workers.add(Thread.ofVirtual().name("token-revocation-" + i).start(this::runWorker));
+        }
+        logger.info("令牌撤销队列已启动: workers={}, provider={}",
+                   workers.size(), revocationProvider.getClass().getSimpleName());
+    }
+    
+    /**
+     * 停止工作线程并处理未完成的任务
+     * 工作线程处理完当前任务后退出，批次中剩余的任务放回队列；
+     * 之后忽略退避时间，把队列中的任务各并发尝试一次，超过关闭时限仍未撤销的令牌记录到日志
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(shutdownTimeoutMillis);
+        running = false;
+        for (Thread worker : workers) {
+            worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        }
+        
+        List<RevocationTask> remaining = new ArrayList<>(pendingQueue);
+        pendingQueue.clear();
+        if (remaining.isEmpty()) {
+            return;
+        }
+        
+        logger.info("应用关闭，立即处理 {} 个未完成的令牌撤销任务", remaining.size());
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        remaining.forEach(task -> executor.execute(() -> attemptBeforeShutdown(task)));
+        executor.shutdown();
+        if (!executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+            executor.shutdownNow();
+        }
+        
+        List<String> unrevoked = remaining.stream()
+                .filter(task -> task.getState() != RevocationState.REVOKED)
+                .map(RevocationTask::getTokenHash)
+                .toList();
+        if (!unrevoked.isEmpty()) {
+            logger.error("应用关闭时仍有 {} 个令牌未能撤销，需人工处理: tokenHashes={}", unrevoked.size(), unrevoked);
+        }
+    }
+    
+    /**
+     * 提交令牌撤销任务
+     * 同一令牌已有未失败的任务时直接返回该任务，不会重复撤销
+     * 
+     * @param accessToken 访问令牌
+     * @return 撤销任务状态
+     */
+    public RevocationStatus submit(String accessToken) {
+        String tokenHash = OAuth2TokenService.hashToken(accessToken);
+        
+        // 令牌已进入撤销流程，清除缓存的有效性结果
+        oauth2TokenService.invalidateToken(accessToken);
+        
+        RevocationTask task = tasks.compute(tokenHash, (hash, existing) -> {
+            if (existing != null && existing.getState() != RevocationState.FAILED) {
+                return existing;
+            }
+            RevocationTask created = new RevocationTask(hash, accessToken);
+            if (pendingQueue.size() >= capacity) {
+                created.finish(RevocationState.FAILED, "撤销队列已满");
+                failedCounter.increment();
+            } else {
+                pendingQueue.offer(created);
+            }
+            return created;
+        });
+        
+        logger.info("令牌撤销任务已提交: tokenHash={}, state={}", tokenHash, task.getState());
+        return task.toStatus();
+    }
+    
+    /**
+     * 查询令牌撤销状态
+     * 
+     * @param tokenHash 令牌哈希
+     * @return 撤销任务状态
+     */
+    public Optional<RevocationStatus> getStatus(String tokenHash) {
+        return Optional.ofNullable(tasks.get(tokenHash)).map(RevocationTask::toStatus);
+    }
+    
+    /**
+     * 清理过期的任务状态
+     */
+    @Scheduled(fixedDelayString = "${app.oauth2.revocation.status-cleanup-interval:300000}")
+    public void purgeFinishedTasks() {
+        Instant threshold = Instant.now().minusMillis(statusRetentionMillis);
+        tasks.values().removeIf(task -> task.getFinishedAt() != null && task.getFinishedAt().isBefore(threshold));
+    }
+    
+    /**
+     * 工作线程主循环：阻塞等待到期任务，然后批量取出处理
+     */
+    private void runWorker() {
+        List<RevocationTask> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                RevocationTask first = pendingQueue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                pendingQueue.drainTo(batch, Math.max(0, batchSize - 1));
+                for (int i = 0; i < batch.size(); i++) {
+                    if (!running) {
+                        // 正在关闭：剩余任务放回队列，由stop()统一处理
+                        pendingQueue.addAll(batch.subList(i, batch.size()));
+                        break;
+                    }
+                    process(batch.get(i));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    
+    /**
+     * 执行一次撤销尝试，失败时按指数退避重新入队
+     * 
+     * @param task 撤销任务
+     */
+    private void process(RevocationTask task) {
+        int attempt = task.startAttempt();
+        String lastError;
+        try {
+            if (revocationProvider.revoke(task.getAccessToken())) {
+                oauth2TokenService.invalidateToken(task.getAccessToken());
+                task.finish(RevocationState.REVOKED, null);
+                revokedCounter.increment();
+                logger.info("令牌撤销成功: tokenHash={}, attempt={}", task.getTokenHash(), attempt);
+                return;
+            }
+            lastError = "撤销请求未被确认";
+        } catch (Exception e) {
+            lastError = e.getMessage();
+        }
+        
+        if (!running) {
+            // 正在关闭：不再退避等待，由stop()立即重试
+            task.retryAfter(0, lastError);
+            pendingQueue.offer(task);
+            return;
+        }
+        
+        if (attempt < maxAttempts) {
+            long backoff = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 30));
+            task.retryAfter(backoff, lastError);
+            retryCounter.increment();
+            pendingQueue.offer(task);
+            logger.warn("令牌撤销失败，{} ms后重试: tokenHash={}, attempt={}, error={}",
+                       backoff, task.getTokenHash(), attempt, lastError);
+            return;
+        }
+        
+        // 重试耗尽，确认令牌是否已经失效
+        boolean stillActive;
+        try {
+            stillActive = revocationProvider.isTokenActive(task.getAccessToken());
+        } catch (Exception e) {
+            stillActive = true;
+        }
+        if (!stillActive) {
+            task.finish(RevocationState.REVOKED, null);
+            revokedCounter.increment();
+            logger.info("令牌已失效，视为撤销成功: tokenHash={}", task.getTokenHash());
+        } else {
+            task.finish(RevocationState.FAILED, lastError);
+            failedCounter.increment();
+            logger.error("令牌撤销最终失败: tokenHash={}, attempts={}, error={}",
+                        task.getTokenHash(), attempt, lastError);
+        }
+    }
+    
+    /**
+     * 应用关闭前对任务做最后一次撤销尝试，失败时不再重试
+     * 
+     * @param task 撤销任务
+     */
+    private void attemptBeforeShutdown(RevocationTask task) {
+        int attempt = task.startAttempt();
+        String lastError;
+        try {
+            if (revocationProvider.revoke(task.getAccessToken())) {
+                oauth2TokenService.invalidateToken(task.getAccessToken());
+                task.finish(RevocationState.REVOKED, null);
+                revokedCounter.increment();
+                logger.info("应用关闭前令牌撤销成功: tokenHash={}, attempt={}", task.getTokenHash(), attempt);
+                return;
+            }
+            lastError = "撤销请求未被确认";
+        } catch (Exception e) {
+            lastError = e.getMessage();
+        }
+        task.finish(RevocationState.FAILED, lastError);
+        failedCounter.increment();
+    }
+    
+    /**
+     * 撤销任务状态
+     */
+    public enum RevocationState {
+        PENDING, REVOKED, FAILED
+    }
+    
+    /**
+     * 撤销任务状态快照，不包含令牌原文
+     */
+    public record RevocationStatus(String tokenHash, RevocationState state, int attempts,
+                                   String lastError, Instant submittedAt, Instant finishedAt) {
+    }
+    
+    /**
+     * 撤销任务
+     */
+    private static class RevocationTask implements Delayed {
+        private final String tokenHash;
+        private final Instant submittedAt = Instant.now();
+        private volatile String accessToken;
+        private volatile RevocationState state = RevocationState.PENDING;
+        private volatile int attempts;
+        private volatile String lastError;
+        private volatile Instant finishedAt;
+        private volatile long nextAttemptNanos = System.nanoTime();
+        
+        RevocationTask(String tokenHash, String accessToken) {
+            this.tokenHash = tokenHash;
+            this.accessToken = accessToken;
+        }
+        
+        String getTokenHash() { return tokenHash; }
+        String getAccessToken() { return accessToken; }
+        RevocationState getState() { return state; }
+        Instant getFinishedAt() { return finishedAt; }
+        
+        int startAttempt() {
+            return ++attempts;
+        }
+        
+        void retryAfter(long backoffMillis, String error) {
+            this.lastError = error;
+            this.nextAttemptNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMillis);
+        }
+        
+        void finish(RevocationState finalState, String error) {
+            this.lastError = error;
+            this.finishedAt = Instant.now();
+            this.state = finalState;
+            // 任务结束后不再需要令牌原文
+            this.accessToken = null;
+        }
+        
+        RevocationStatus toStatus() {
+            return new RevocationStatus(tokenHash, state, attempts, lastError, submittedAt, finishedAt);
+        }
+        
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(nextAttemptNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+}
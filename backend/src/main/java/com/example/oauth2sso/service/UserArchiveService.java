@@ -0,0 +1,164 @@
+package com.example.oauth2sso.service;
+
+import com.example.oauth2sso.entity.User;
+import com.example.oauth2sso.repository.UserArchiveRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 已删除用户归档服务
+ * 后台定期将软删除超过保留期的用户移入users_archive表，缩小users表及其索引中常驻内存的部分。
+ * 每批只移动少量用户并在独立的短事务中完成，批次之间暂停一段时间，避免长时间持有行锁或占满数据库IO；
+ * 单次执行的批次数有上限，剩余用户留待下一次执行。
+ * 
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+@Service
+public class UserArchiveService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(UserArchiveService.class);
+    
+    @Autowired
+    private UserArchiveRepository userArchiveRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // 是否启用后台归档
+    @Value("${app.user.archive.enabled:true}")
+    private boolean enabled;
+    
+    // 软删除后保留在users表中的天数
+    @Value("${app.user.archive.retention-days:90}")
+    private int retentionDays;
+    
+    // 每批移动的用户数
+    @Value("${app.user.archive.batch-size:200}")
+    private int batchSize;
+    
+    // 批次之间的暂停时间(毫秒)
+    @Value("${app.user.archive.batch-pause:500}")
+    private long batchPauseMillis;
+    
+    // 单次执行最多移动的批次数
+    @Value("${app.user.archive.max-batches:50}")
+    private int maxBatches;
+    
+    private TransactionTemplate transactionTemplate;
+    
+    private Counter archivedCounter;
+    
+    private Counter restoredCounter;
+    
+    /**
+     * 初始化事务模板并注册归档指标
+     */
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        archivedCounter = Counter.builder("sso.user.archive.archived")
+                .description("移入归档表的已删除用户数")
+                .register(meterRegistry);
+        restoredCounter = Counter.builder("sso.user.archive.restored")
+                .description("从归档表恢复的用户数")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * 定期归档超过保留期的已删除用户
+     */
+    @Scheduled(initialDelayString = "${app.user.archive.interval:3600000}",
+               fixedDelayString = "${app.user.archive.interval:3600000}")
+    public void archiveExpired() {
+        if (!enabled) {
+            return;
+        }
+        
+        LocalDateTime deletedBefore = LocalDateTime.now().minusDays(retentionDays);
+        int total = 0;
+        try {
+            for (int batch = 0; batch < maxBatches; batch++) {
+                List<Long> ids = transactionTemplate.execute(status -> archiveBatch(deletedBefore));
+                if (ids == null || ids.isEmpty()) {
+                    break;
+                }
+                evictCachedUsers(ids);
+                archivedCounter.increment(ids.size());
+                total += ids.size();
+                if (ids.size() < batchSize) {
+                    break;
+                }
+                Thread.sleep(batchPauseMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("归档已删除用户失败: {}", e.getMessage());
+        }
+        
+        if (total > 0) {
+            logger.info("归档已删除用户: {} 个，删除时间早于 {}", total, deletedBefore);
+        }
+    }
+    
+    /**
+     * 将归档用户移回users表，需要在调用方事务中执行
+     * 
+     * @param id 用户ID
+     * @return 归档表中是否存在该用户
+     */
+    public boolean restoreFromArchive(Long id) {
+        if (!userArchiveRepository.restore(id)) {
+            return false;
+        }
+        TransactionCallbacks.afterCommit(restoredCounter::increment);
+        logger.info("从归档表恢复用户: {}", id);
+        return true;
+    }
+    
+    private List<Long> archiveBatch(LocalDateTime deletedBefore) {
+        List<Long> ids = userArchiveRepository.lockExpiredIds(deletedBefore, batchSize);
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        userArchiveRepository.archive(ids, LocalDateTime.now());
+        return ids;
+    }
+    
+    /**
+     * 从二级缓存中移除已归档的用户
+     * 
+     * @param ids 用户ID列表
+     */
+    private void evictCachedUsers(List<Long> ids) {
+        Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        for (Long id : ids) {
+            cache.evictEntityData(User.class, id);
+        }
+        cache.evictQueryRegion(User.VIEW_QUERY_CACHE_REGION);
+    }
+}
@@ -1,19 +1,44 @@
 package com.example.oauth2sso.service;
 
 import com.example.oauth2sso.dto.UserDTO;
+import com.example.oauth2sso.dto.UserPageDTO;
 import com.example.oauth2sso.entity.User;
+import com.example.oauth2sso.repository.UserLoginUpsertRepository;
+import com.example.oauth2sso.repository.UserLoginUpsertRepository.LoginProfile;
+import com.example.oauth2sso.repository.UserLoginUpsertRepository.UpsertResult;
 import com.example.oauth2sso.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Cache;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.jpa.HibernateHints;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * 用户业务逻辑服务类
@@ -28,9 +53,62 @@ public class UserService {
     
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
     
+    // 只更新一行的最后登录时间；updated_at显式赋为原值，避免MySQL的ON UPDATE CURRENT_TIMESTAMP把它改为当前时间。
+    // 不使用JPQL批量更新，Hibernate会为此清空整个用户实体缓存区域
+    private static final String UPDATE_LAST_LOGIN_SQL =
+            "UPDATE users SET last_login = ?, updated_at = updated_at WHERE id = ?";
+    
+    // 导出查询，条件和排序与键集分页查询相同，由idx_delete_flag_created_at_id索引提供顺序
+    private static final String EXPORT_QUERY =
+            "SELECT u FROM User u WHERE u.deleteFlag = '0' ORDER BY u.createdAt DESC, u.id DESC";
+    
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private LastLoginWriteBehindBuffer lastLoginBuffer;
+    
+    @Autowired
+    private UsernameSearchIndex usernameSearchIndex;
+    
+    @Autowired
+    private CurrentUserCache currentUserCache;
+    
+    @Autowired
+    private UserStatisticsService userStatisticsService;
+    
+    @Autowired
+    private UserLoginUpsertRepository userLoginUpsertRepository;
+    
+    @Autowired
+    private UserArchiveService userArchiveService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    // 用户名搜索最多返回条数
+    @Value("${app.user.search.max-results:50}")
+    private int maxSearchResults;
+    
+    // 分页查询每页最大条数
+    @Value("${app.user.page.max-size:100}")
+    private int maxPageSize;
+    
+    // 导出时JDBC每次读取的行数，MySQL驱动下Integer.MIN_VALUE表示逐行流式读取，其他驱动需使用正数
+    @Value("${app.user.export.fetch-size:-2147483648}")
+    private int exportFetchSize;
+    
+    // OAuth2登录时的用户持久化方式：jpa-先查询再插入或更新，upsert-单条upsert语句完成
+    @Value("${app.user.login-persistence:jpa}")
+    private String loginPersistence;
+    
+    // 是否通过写回缓冲区批量更新最后登录时间
+    @Value("${app.user.last-login.write-behind-enabled:true}")
+    private boolean lastLoginWriteBehindEnabled;
+    
     /**
      * 根据GitHub ID查找用户
      * 
@@ -43,10 +121,28 @@ public class UserService {
             return Optional.empty();
         }
         
-        return userRepository.findByGithubIdAndNotDeleted(githubId)
+        return findActiveByGithubId(githubId)
                 .map(UserDTO::fromEntity);
     }
     
+    /**
+     * 根据GitHub ID查询用户，用于只读展示
+     * 通过投影查询直接生成DTO，不加载实体；个人简介仅在需要时单独查询
+     * 
+     * @param githubId GitHub用户ID
+     * @param includeBio 是否查询个人简介
+     * @return 用户对象
+     */
+    @Transactional(readOnly = true)
+    public Optional<UserDTO> findViewByGithubId(String githubId, boolean includeBio) {
+        if (!StringUtils.hasText(githubId)) {
+            return Optional.empty();
+        }
+        
+        return userRepository.findViewByGithubIdAndNotDeleted(githubId)
+                .map(view -> view.toDTO(includeBio ? userRepository.findBioById(view.id()).orElse(null) : null));
+    }
+    
     /**
      * 根据用户名查找用户
      * 
@@ -93,6 +189,97 @@ public class UserService {
                 .collect(Collectors.toList());
     }
     
+    /**
+     * 键集分页查询用户
+     * 按(创建时间, ID)倒序排列，游标记录上一页最后一条数据的位置，
+     * 查询代价与翻页深度无关
+     * 
+     * @param cursor 上一页返回的游标，为空时查询第一页
+     * @param size 每页条数，超过上限时按上限处理
+     * @param includeTotal 是否同时统计总数
+     * @return 分页结果
+     */
+    @Transactional(readOnly = true)
+    public UserPageDTO findPage(String cursor, int size, boolean includeTotal) {
+        int pageSize = Math.max(1, Math.min(size, maxPageSize));
+        // 多取一条用于判断是否还有下一页
+        PageRequest limit = PageRequest.ofSize(pageSize + 1);
+        
+        List<User> users;
+        if (StringUtils.hasText(cursor)) {
+            PageCursor position = PageCursor.decode(cursor);
+            users = userRepository.findPageNotDeletedAfter(position.createdAt(), position.id(), limit);
+        } else {
+            users = userRepository.findFirstPageNotDeleted(limit);
+        }
+        
+        boolean hasMore = users.size() > pageSize;
+        if (hasMore) {
+            users = users.subList(0, pageSize);
+        }
+        
+        String nextCursor = null;
+        if (hasMore) {
+            User last = users.get(users.size() - 1);
+            nextCursor = new PageCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        
+        List<UserDTO> userDTOs = users.stream()
+                .map(UserDTO::fromEntity)
+                .collect(Collectors.toList());
+        Long total = includeTotal ? userStatisticsService.getTotalUsers() : null;
+        
+        return new UserPageDTO(userDTOs, nextCursor, hasMore, total);
+    }
+    
+    /**
+     * 流式导出所有未删除用户
+     * 按app.user.export.fetch-size分批读取并逐个回调，处理完的实体立即从持久化上下文移除，内存占用与用户总数无关
+     * 
+     * @param consumer 用户数据处理回调
+     * @return 导出的用户数
+     */
+    @Transactional(readOnly = true)
+    public long exportAll(Consumer<UserDTO> consumer) {
+        long count = 0;
+        try (Stream<User> users = entityManager.createQuery(EXPORT_QUERY, User.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, exportFetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()) {
+            Iterator<User> iterator = users.iterator();
+            while (iterator.hasNext()) {
+                User user = iterator.next();
+                consumer.accept(UserDTO.fromEntity(user));
+                entityManager.detach(user);
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * 分页游标
+     * 编码为Base64URL字符串，对调用方不透明
+     */
+    private record PageCursor(LocalDateTime createdAt, Long id) {
+        
+        String encode() {
+            String raw = createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        static PageCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.lastIndexOf('|');
+                return new PageCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                                      Long.parseLong(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("无效的分页游标: " + cursor);
+            }
+        }
+    }
+    
     /**
      * 创建新用户
      * 
@@ -104,19 +291,46 @@ public class UserService {
             throw new IllegalArgumentException("用户信息不能为空，且GitHub ID必须提供");
         }
         
-        // 检查GitHub ID是否已存在
-        if (userRepository.existsByGithubIdAndNotDeleted(userDTO.getGithubId())) {
-            throw new IllegalArgumentException("GitHub ID已存在: " + userDTO.getGithubId());
-        }
-        
         User user = userDTO.toEntity();
         user.setDeleteFlag("0");
         user.updateLastLogin();
         
-        User savedUser = userRepository.save(user);
+        // 不预先检查GitHub ID是否存在，直接插入并由github_id唯一约束判断重复，避免额外查询和并发重复创建
+        User savedUser;
+        try {
+            savedUser = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            if (isDuplicateKey(e)) {
+                throw new IllegalArgumentException("GitHub ID已存在: " + userDTO.getGithubId());
+            }
+            throw e;
+        }
+        usernameSearchIndex.indexAfterCommit(savedUser.getId(), savedUser.getUsername());
+        userStatisticsService.userCreatedAfterCommit();
+        userStatisticsService.loginAfterCommit(savedUser.getId(), savedUser.getLastLogin());
         logger.info("创建新用户成功: {}", (Object) savedUser.toString());
         
-        return UserDTO.fromEntity(savedUser);
+        UserDTO savedDTO = UserDTO.fromEntity(savedUser);
+        currentUserCache.refreshAfterCommit(savedDTO);
+        return savedDTO;
+    }
+    
+    /**
+     * 判断完整性约束异常是否由唯一键冲突引起
+     * JPA的异常转换不区分约束类型，这里按数据库错误码重新转换；
+     * users表的主键自增，插入时的唯一键冲突只可能来自github_id
+     * 
+     * @param e 完整性约束异常
+     * @return 是否为唯一键冲突
+     */
+    private boolean isDuplicateKey(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException) {
+                return jdbcTemplate.getExceptionTranslator()
+                        .translate("createUser", null, sqlException) instanceof DuplicateKeyException;
+            }
+        }
+        return false;
     }
     
     /**
@@ -166,14 +380,18 @@ public class UserService {
         }
         
         User savedUser = userRepository.save(existingUser);
+        usernameSearchIndex.indexAfterCommit(savedUser.getId(), savedUser.getUsername());
         logger.info("更新用户信息成功: {}", (Object) savedUser.toString());
         
-        return UserDTO.fromEntity(savedUser);
+        UserDTO savedDTO = UserDTO.fromEntity(savedUser);
+        currentUserCache.refreshAfterCommit(savedDTO);
+        return savedDTO;
     }
     
     /**
      * OAuth2登录时处理用户信息
-     * 创建新用户或更新现有用户的登录时间和信息
+     * 创建新用户或更新现有用户的登录时间和信息；
+     * 现有用户的GitHub资料没有变化时只执行一条更新最后登录时间的UPDATE
      * 
      * @param githubId GitHub用户ID
      * @param username 用户名
@@ -194,49 +412,126 @@ public class UserService {
                                      String location, String company, String blog,
                                      Integer publicRepos, Integer followers, Integer following) {
         
-        Optional<User> existingUserOpt = userRepository.findByGithubIdAndNotDeleted(githubId);
+        if ("upsert".equalsIgnoreCase(loginPersistence)) {
+            return processOAuth2LoginWithUpsert(new LoginProfile(githubId, username, email, avatarUrl, name, bio,
+                                                                 location, company, blog,
+                                                                 publicRepos, followers, following));
+        }
+        
+        Optional<User> existingUserOpt = findActiveByGithubId(githubId);
         
-        User user;
         if (existingUserOpt.isPresent()) {
-            // 更新现有用户信息
-            user = existingUserOpt.get();
-            user.setUsername(username);
-            user.setEmail(email);
-            user.setAvatarUrl(avatarUrl);
-            user.setName(name);
-            user.setBio(bio);
-            user.setLocation(location);
-            user.setCompany(company);
-            user.setBlog(blog);
-            user.setPublicRepos(publicRepos);
-            user.setFollowers(followers);
-            user.setFollowing(following);
-            user.updateLastLogin();
+            User user = existingUserOpt.get();
+            boolean profileChanged = user.applyGitHubProfile(username, email, avatarUrl, name, bio,
+                                                             location, company, blog,
+                                                             publicRepos, followers, following);
             
-            logger.info("更新现有用户登录信息: {}", (Object) githubId);
-        } else {
-            // 创建新用户
-            user = new User();
-            user.setGithubId(githubId);
-            user.setUsername(username);
-            user.setEmail(email);
-            user.setAvatarUrl(avatarUrl);
-            user.setName(name);
-            user.setBio(bio);
-            user.setLocation(location);
-            user.setCompany(company);
-            user.setBlog(blog);
-            user.setPublicRepos(publicRepos);
-            user.setFollowers(followers);
-            user.setFollowing(following);
-            user.setDeleteFlag("0");
-            user.updateLastLogin();
+            if (profileChanged) {
+                // 资料有变化：只写入变化的列和最后登录时间
+                user.updateLastLogin();
+                User savedUser = userRepository.save(user);
+                usernameSearchIndex.indexAfterCommit(savedUser.getId(), savedUser.getUsername());
+                userStatisticsService.loginAfterCommit(savedUser.getId(), savedUser.getLastLogin());
+                logger.info("更新现有用户登录信息: {}", (Object) githubId);
+                UserDTO savedDTO = UserDTO.fromEntity(savedUser);
+                currentUserCache.refreshAfterCommit(savedDTO);
+                return savedDTO;
+            }
             
-            logger.info("创建新用户: {}", (Object) githubId);
+            // 资料无变化：只更新最后登录时间
+            LocalDateTime lastLogin = LocalDateTime.now();
+            touchLastLogin(user.getId(), lastLogin);
+            userStatisticsService.loginAfterCommit(user.getId(), lastLogin);
+            logger.debug("用户资料无变化，仅更新最后登录时间: {}", (Object) githubId);
+            
+            UserDTO userDTO = UserDTO.fromEntity(user);
+            userDTO.setLastLogin(lastLogin);
+            currentUserCache.refreshAfterCommit(userDTO);
+            return userDTO;
         }
         
+        // 创建新用户
+        User user = new User();
+        user.setGithubId(githubId);
+        user.setUsername(username);
+        user.setEmail(email);
+        user.setAvatarUrl(avatarUrl);
+        user.setName(name);
+        user.setBio(bio);
+        user.setLocation(location);
+        user.setCompany(company);
+        user.setBlog(blog);
+        user.setPublicRepos(publicRepos);
+        user.setFollowers(followers);
+        user.setFollowing(following);
+        user.setDeleteFlag("0");
+        user.updateLastLogin();
+        
+        logger.info("创建新用户: {}", (Object) githubId);
+        
         User savedUser = userRepository.save(user);
-        return UserDTO.fromEntity(savedUser);
+        usernameSearchIndex.indexAfterCommit(savedUser.getId(), savedUser.getUsername());
+        userStatisticsService.userCreatedAfterCommit();
+        userStatisticsService.loginAfterCommit(savedUser.getId(), savedUser.getLastLogin());
+        UserDTO savedDTO = UserDTO.fromEntity(savedUser);
+        currentUserCache.refreshAfterCommit(savedDTO);
+        return savedDTO;
+    }
+    
+    /**
+     * 通过单条upsert语句处理OAuth2登录
+     * 同一账号并发首次登录时由github_id唯一约束保证只创建一条记录；
+     * 语句绕过了Hibernate，提交后需要清除该用户的二级缓存
+     * 
+     * @param profile 登录时获取的GitHub资料
+     * @return 用户对象
+     */
+    private UserDTO processOAuth2LoginWithUpsert(LoginProfile profile) {
+        LocalDateTime loginTime = LocalDateTime.now();
+        UpsertResult result = userLoginUpsertRepository.upsert(profile, loginTime);
+        if (result.deleted()) {
+            throw new IllegalStateException("用户已被删除: " + profile.githubId());
+        }
+        
+        TransactionCallbacks.afterCommit(() -> evictCachedUser(result.id()));
+        usernameSearchIndex.indexAfterCommit(result.id(), profile.username());
+        if (result.created()) {
+            userStatisticsService.userCreatedAfterCommit();
+        }
+        userStatisticsService.loginAfterCommit(result.id(), loginTime);
+        currentUserCache.evictAfterCommit(profile.githubId());
+        
+        logger.info("{}: {}", result.created() ? "创建新用户" : "更新现有用户登录信息", (Object) profile.githubId());
+        
+        UserDTO userDTO = new UserDTO(profile.githubId(), profile.username(), profile.email());
+        userDTO.setId(result.id());
+        userDTO.setAvatarUrl(profile.avatarUrl());
+        userDTO.setName(profile.name());
+        userDTO.setBio(profile.bio());
+        userDTO.setLocation(profile.location());
+        userDTO.setCompany(profile.company());
+        userDTO.setBlog(profile.blog());
+        userDTO.setPublicRepos(profile.publicRepos());
+        userDTO.setFollowers(profile.followers());
+        userDTO.setFollowing(profile.following());
+        userDTO.setLastLogin(loginTime);
+        // 资料未变化时updated_at保持原值，语句不返回该值，只有新建用户时可以确定
+        if (result.created()) {
+            userDTO.setCreatedAt(loginTime);
+            userDTO.setUpdatedAt(loginTime);
+        }
+        return userDTO;
+    }
+    
+    /**
+     * 清除用户的实体缓存和用户视图查询缓存
+     * 
+     * @param userId 用户ID
+     */
+    private void evictCachedUser(Long userId) {
+        Cache cache = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getCache();
+        cache.evictEntityData(User.class, userId);
+        cache.evictQueryRegion(User.VIEW_QUERY_CACHE_REGION);
     }
     
     /**
@@ -249,15 +544,46 @@ public class UserService {
             return;
         }
         
-        Optional<User> userOpt = userRepository.findByGithubIdAndNotDeleted(githubId);
+        Optional<User> userOpt = findActiveByGithubId(githubId);
         if (userOpt.isPresent()) {
-            User user = userOpt.get();
-            user.updateLastLogin();
-            userRepository.save(user);
+            LocalDateTime lastLogin = LocalDateTime.now();
+            touchLastLogin(userOpt.get().getId(), lastLogin);
+            userStatisticsService.loginAfterCommit(userOpt.get().getId(), lastLogin);
+            currentUserCache.evictAfterCommit(githubId);
             logger.debug("更新用户最后登录时间: {}", (Object) githubId);
         }
     }
     
+    /**
+     * 按GitHub ID加载未删除的用户
+     * 通过自然主键查找，命中二级缓存时不访问数据库
+     * 
+     * @param githubId GitHub用户ID
+     * @return 用户实体
+     */
+    private Optional<User> findActiveByGithubId(String githubId) {
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(User.class)
+                .loadOptional(githubId)
+                .filter(user -> "0".equals(user.getDeleteFlag()));
+    }
+    
+    /**
+     * 记录用户最后登录时间
+     * 启用写回缓冲时只记录到内存，由缓冲区定期批量写入；否则立即以JDBC执行单行UPDATE，提交后只清除该用户的实体缓存
+     * 
+     * @param userId 用户ID
+     * @param lastLogin 最后登录时间
+     */
+    private void touchLastLogin(Long userId, LocalDateTime lastLogin) {
+        if (lastLoginWriteBehindEnabled) {
+            lastLoginBuffer.touch(userId, lastLogin);
+        } else {
+            jdbcTemplate.update(UPDATE_LAST_LOGIN_SQL, Timestamp.valueOf(lastLogin), userId);
+            TransactionCallbacks.afterCommit(() -> evictCachedUser(userId));
+        }
+    }
+    
     /**
      * 软删除用户
      * 
@@ -277,12 +603,16 @@ public class UserService {
         User user = userOpt.get();
         user.softDelete(deleteUser);
         userRepository.save(user);
+        usernameSearchIndex.removeAfterCommit(user.getId());
+        currentUserCache.evictAfterCommit(user.getGithubId());
+        userStatisticsService.userDeletedAfterCommit();
         
         logger.info("软删除用户成功: {}, 操作人: {}", (Object) id, (Object) deleteUser);
     }
     
     /**
      * 恢复软删除用户
+     * 已被移入归档表的用户先移回users表再恢复
      * 
      * @param id 用户ID
      */
@@ -292,6 +622,9 @@ public class UserService {
         }
         
         Optional<User> userOpt = userRepository.findById(id);
+        if (userOpt.isEmpty() && restoreFromArchive(id)) {
+            userOpt = userRepository.findById(id);
+        }
         if (userOpt.isEmpty()) {
             throw new IllegalArgumentException("用户不存在: " + id);
         }
@@ -303,10 +636,22 @@ public class UserService {
         
         user.restoreDelete();
         userRepository.save(user);
+        usernameSearchIndex.indexAfterCommit(user.getId(), user.getUsername());
+        currentUserCache.evictAfterCommit(user.getGithubId());
+        userStatisticsService.userRestoredAfterCommit();
         
         logger.info("恢复删除用户成功: {}", (Object) id);
     }
     
+    private boolean restoreFromArchive(Long id) {
+        try {
+            return userArchiveService.restoreFromArchive(id);
+        } catch (DataIntegrityViolationException e) {
+            // 归档期间同一GitHub账号重新登录创建了新用户
+            throw new IllegalArgumentException("该GitHub账号已存在其他用户，无法恢复: " + id);
+        }
+    }
+    
     /**
      * 检查GitHub ID是否存在
      * 
@@ -337,29 +682,74 @@ public class UserService {
     
     /**
      * 根据用户名模糊查询
+     * 关键字不少于3个字符时通过内存搜索索引查找用户名任意位置包含关键字的用户，结果按相关度排序，
+     * 索引尚未加载完成时查询数据库；更短的关键字使用可走索引的前缀查询；关键字为空时返回最新注册的用户
      * 
      * @param username 用户名关键字
+     * @param limit 最多返回条数，超过上限时按上限处理
      * @return 用户列表
      */
     @Transactional(readOnly = true)
-    public List<UserDTO> searchByUsername(String username) {
+    public List<UserDTO> searchByUsername(String username, int limit) {
+        int maxResults = Math.max(1, Math.min(limit, maxSearchResults));
+        PageRequest pageLimit = PageRequest.ofSize(maxResults);
+        
+        List<User> users;
         if (!StringUtils.hasText(username)) {
-            return findAll();
+            users = userRepository.findFirstPageNotDeleted(pageLimit);
+        } else {
+            String keyword = username.trim();
+            if (keyword.length() < UsernameSearchIndex.GRAM_LENGTH) {
+                users = userRepository.findByUsernameStartingWithAndNotDeleted(escapeLike(keyword), pageLimit);
+            } else if (usernameSearchIndex.isReady()) {
+                users = loadInOrder(usernameSearchIndex.search(keyword, maxResults));
+            } else {
+                users = userRepository.findByUsernameContainingAndNotDeleted(keyword, pageLimit);
+            }
         }
         
-        return userRepository.findByUsernameContainingAndNotDeleted(username)
-                .stream()
+        return users.stream()
                 .map(UserDTO::fromEntity)
                 .collect(Collectors.toList());
     }
     
+    /**
+     * 按给定ID顺序加载未删除的用户
+     * 
+     * @param ids 用户ID
+     * @return 用户列表
+     */
+    private List<User> loadInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, User> usersById = userRepository.findAllById(ids).stream()
+                .filter(user -> "0".equals(user.getDeleteFlag()))
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        return ids.stream()
+                .map(usersById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * 转义LIKE查询中的通配符，转义字符为'!'
+     * 
+     * @param value 原始字符串
+     * @return 转义后的字符串
+     */
+    private static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+    
     /**
      * 统计用户总数
+     * 返回内存中维护的计数，不查询数据库
      * 
      * @return 用户总数
      */
     @Transactional(readOnly = true)
     public long count() {
-        return userRepository.countNotDeleted();
+        return userStatisticsService.getTotalUsers();
     }
 } 
\ No newline at end of file
@@ -0,0 +1,210 @@
+package com.example.oauth2sso.service;
+
+import com.example.oauth2sso.repository.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 用户统计服务
+ * 在内存中维护未删除用户总数和按天分桶的活跃用户，由UserService在事务提交后增量更新，
+ * 查询统计数据时不再对users表执行COUNT。
+ * 启动时以及之后定期与数据库对账，纠正其他实例写入或进程重启造成的偏差。
+ * 
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+@Service
+public class UserStatisticsService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(UserStatisticsService.class);
+    
+    private static final String ACTIVE_USERS_SQL =
+            "SELECT id, last_login FROM users WHERE delete_flag = '0' AND last_login >= ?";
+    
+    // 单次对账中统计用户总数的最多次数
+    private static final int RECONCILE_ATTEMPTS = 3;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // 保留活跃用户统计的天数（含当天）
+    @Value("${app.user.stats.active-days:7}")
+    private int activeDays;
+    
+    // 未删除用户总数
+    private final AtomicLong totalUsers = new AtomicLong();
+    
+    // 是否已与数据库完成对账
+    private volatile boolean reconciled = false;
+    
+    // 每天有登录记录的用户ID，按日期排序
+    private final ConcurrentSkipListMap<LocalDate, Set<Long>> activeUsersByDay = new ConcurrentSkipListMap<>();
+    
+    /**
+     * 注册统计指标
+     */
+    @PostConstruct
+    public void initMetrics() {
+        Gauge.builder("sso.user.total", totalUsers, AtomicLong::get)
+                .description("未删除的用户总数")
+                .register(meterRegistry);
+        Gauge.builder("sso.user.active.today", this, stats -> stats.getActiveUsers(LocalDate.now()))
+                .description("当天有登录记录的用户数")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * 应用启动完成后与数据库对账
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        reconcile();
+    }
+    
+    /**
+     * 定期与数据库对账
+     * 用户总数以数据库COUNT结果为准；活跃用户按users.last_login重新补充，每个用户只能补充到最后一次登录的日期
+     */
+    @Scheduled(initialDelayString = "${app.user.stats.reconcile-interval:600000}",
+               fixedDelayString = "${app.user.stats.reconcile-interval:600000}")
+    public void reconcile() {
+        try {
+            reconcileTotalUsers();
+            
+            LocalDate firstDay = LocalDate.now().minusDays(Math.max(1, activeDays) - 1L);
+            activeUsersByDay.headMap(firstDay).clear();
+            jdbcTemplate.query(ACTIVE_USERS_SQL, rs -> {
+                Timestamp lastLogin = rs.getTimestamp(2);
+                addActiveUser(rs.getLong(1), lastLogin.toLocalDateTime().toLocalDate());
+            }, Timestamp.valueOf(firstDay.atStartOfDay()));
+        } catch (Exception e) {
+            logger.error("用户统计对账失败: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 以数据库COUNT结果修正用户总数
+     * 修正量按COUNT前的计数计算并以增量方式累加，COUNT之后到达的增减不会被覆盖；
+     * COUNT期间计数发生变化时无法判断这些变化是否已包含在COUNT结果中，放弃本次结果重新统计
+     */
+    private void reconcileTotalUsers() {
+        for (int attempt = 1; attempt <= RECONCILE_ATTEMPTS; attempt++) {
+            long before = totalUsers.get();
+            long counted = userRepository.countNotDeleted();
+            if (totalUsers.get() != before) {
+                continue;
+            }
+            totalUsers.addAndGet(counted - before);
+            if (reconciled && counted != before) {
+                logger.info("用户总数与数据库对账修正: {} -> {}", before, counted);
+            }
+            reconciled = true;
+            return;
+        }
+        logger.warn("用户总数对账期间计数持续变化，留待下次对账");
+    }
+    
+    /**
+     * 获取未删除用户总数
+     * 尚未完成对账时直接查询数据库
+     * 
+     * @return 用户总数
+     */
+    public long getTotalUsers() {
+        if (!reconciled) {
+            return userRepository.countNotDeleted();
+        }
+        return totalUsers.get();
+    }
+    
+    /**
+     * 获取指定日期的活跃用户数
+     * 
+     * @param day 日期
+     * @return 活跃用户数
+     */
+    public int getActiveUsers(LocalDate day) {
+        Set<Long> users = activeUsersByDay.get(day);
+        return users == null ? 0 : users.size();
+    }
+    
+    /**
+     * 获取最近几天每天的活跃用户数
+     * 
+     * @return 日期到活跃用户数的映射，按日期升序
+     */
+    public Map<LocalDate, Integer> getDailyActiveUsers() {
+        LocalDate today = LocalDate.now();
+        Map<LocalDate, Integer> result = new LinkedHashMap<>();
+        for (int i = Math.max(1, activeDays) - 1; i >= 0; i--) {
+            LocalDate day = today.minusDays(i);
+            result.put(day, getActiveUsers(day));
+        }
+        return result;
+    }
+    
+    /**
+     * 在当前事务提交后记录新用户
+     */
+    public void userCreatedAfterCommit() {
+        TransactionCallbacks.afterCommit(totalUsers::incrementAndGet);
+    }
+    
+    /**
+     * 在当前事务提交后记录用户被软删除
+     */
+    public void userDeletedAfterCommit() {
+        TransactionCallbacks.afterCommit(totalUsers::decrementAndGet);
+    }
+    
+    /**
+     * 在当前事务提交后记录用户被恢复
+     */
+    public void userRestoredAfterCommit() {
+        TransactionCallbacks.afterCommit(totalUsers::incrementAndGet);
+    }
+    
+    /**
+     * 在当前事务提交后记录用户登录
+     * 
+     * @param userId 用户ID
+     * @param loginTime 登录时间
+     */
+    public void loginAfterCommit(Long userId, LocalDateTime loginTime) {
+        TransactionCallbacks.afterCommit(() -> addActiveUser(userId, loginTime.toLocalDate()));
+    }
+    
+    private void addActiveUser(long userId, LocalDate day) {
+        if (day.isBefore(LocalDate.now().minusDays(Math.max(1, activeDays) - 1L))) {
+            return;
+        }
+        activeUsersByDay.computeIfAbsent(day, key -> ConcurrentHashMap.newKeySet()).add(userId);
+    }
+}
@@ -0,0 +1,397 @@
+package com.example.oauth2sso.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 用户名搜索索引
+ * 在内存中维护用户名的三元组(trigram)倒排索引，支持任意位置的子串搜索，
+ * 避免数据库 LIKE '%关键字%' 无法使用索引导致的全表扫描。
+ * 倒排列表保存原始long数组：100万用户时连同用户名映射约140MB，装箱的Set&lt;Long&gt;倒排列表单独就需约340MB
+ * (见UsernameSearchIndexBenchmark)。
+ * 不足一个三元组的关键字无法使用倒排列表，由调用方改用可走索引的数据库前缀查询。
+ * 应用启动后从数据库加载全部未删除用户，之后由UserService在事务提交后同步本实例的增量变更；
+ * 索引属于单个实例，其他实例写入的数据要到下一次定期全量重建后才可见，
+ * 最长延迟为一个重建间隔(app.user.search.rebuild-interval，默认5分钟)。
+ * 
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+@Component
+public class UsernameSearchIndex {
+    
+    private static final Logger logger = LoggerFactory.getLogger(UsernameSearchIndex.class);
+    
+    // 三元组长度，少于该长度的关键字无法使用倒排列表
+    public static final int GRAM_LENGTH = 3;
+    
+    private static final String LOAD_SQL = "SELECT id, username FROM users WHERE delete_flag = '0'";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // 是否启用内存索引，关闭后搜索直接查询数据库
+    @Value("${app.user.search.index-enabled:true}")
+    private boolean enabled;
+    
+    // 全量加载时每次从数据库读取的行数
+    @Value("${app.user.search.load-fetch-size:1000}")
+    private int loadFetchSize;
+    
+    // 当前提供查询的索引
+    private volatile Snapshot current = new Snapshot();
+    
+    // 重建中的索引，重建期间的增量变更会同时写入
+    private Snapshot building;
+    
+    // 首次加载完成前不提供查询
+    private volatile boolean ready = false;
+    
+    private Timer rebuildTimer;
+    
+    /**
+     * 注册索引监控指标
+     */
+    @PostConstruct
+    public void initMetrics() {
+        Gauge.builder("sso.user.search.index.size", this, index -> index.current.size())
+                .description("用户名搜索索引中的用户数")
+                .register(meterRegistry);
+        rebuildTimer = Timer.builder("sso.user.search.index.rebuild")
+                .description("用户名搜索索引全量重建耗时")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * 应用启动完成后在后台加载索引，不阻塞启动
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (enabled) {
+            Thread.ofVirtual().name("username-index-loader").start(this::rebuild);
+        }
+    }
+    
+    /**
+     * 定期全量重建索引
+     */
+    @Scheduled(initialDelayString = "${app.user.search.rebuild-interval:300000}",
+               fixedDelayString = "${app.user.search.rebuild-interval:300000}")
+    public void scheduledRebuild() {
+        if (enabled && ready) {
+            rebuild();
+        }
+    }
+    
+    /**
+     * 从数据库全量重建索引
+     * 新索引构建完成后整体替换当前索引，构建期间当前索引继续提供查询
+     */
+    public void rebuild() {
+        Snapshot snapshot = new Snapshot();
+        synchronized (this) {
+            if (building != null) {
+                return;
+            }
+            building = snapshot;
+        }
+        
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(LOAD_SQL);
+                statement.setFetchSize(loadFetchSize);
+                return statement;
+            }, rs -> {
+                long id = rs.getLong(1);
+                String username = rs.getString(2);
+                synchronized (this) {
+                    // 构建期间已有增量变更的用户以增量数据为准
+                    snapshot.putIfUntouched(id, username);
+                }
+            });
+            synchronized (this) {
+                snapshot.trim();
+                current = snapshot;
+                building = null;
+            }
+            ready = true;
+            logger.info("用户名搜索索引构建完成: users={}, grams={}", snapshot.size(), snapshot.gramCount());
+        } catch (Exception e) {
+            synchronized (this) {
+                building = null;
+            }
+            logger.error("用户名搜索索引构建失败: {}", e.getMessage());
+        } finally {
+            sample.stop(rebuildTimer);
+        }
+    }
+    
+    /**
+     * 索引是否可用
+     * 
+     * @return 是否可用
+     */
+    public boolean isReady() {
+        return enabled && ready;
+    }
+    
+    /**
+     * 在当前事务提交后写入或更新索引，没有事务时立即写入
+     * 
+     * @param id 用户ID
+     * @param username 用户名
+     */
+    public void indexAfterCommit(Long id, String username) {
+        afterCommit(() -> put(id, username));
+    }
+    
+    /**
+     * 在当前事务提交后从索引中移除用户，没有事务时立即移除
+     * 
+     * @param id 用户ID
+     */
+    public void removeAfterCommit(Long id) {
+        afterCommit(() -> remove(id));
+    }
+    
+    /**
+     * 搜索用户名包含关键字的用户
+     * 排序规则：完全匹配、前缀匹配、其他位置匹配；同类按匹配位置、用户名长度、ID倒序
+     * 
+     * @param keyword 关键字，不足GRAM_LENGTH个字符时返回空列表，调用方应改用数据库前缀查询
+     * @param limit 最多返回条数
+     * @return 按相关度排序的用户ID
+     */
+    public List<Long> search(String keyword, int limit) {
+        String normalized = normalize(keyword);
+        if (normalized.length() < GRAM_LENGTH || limit <= 0) {
+            return Collections.emptyList();
+        }
+        
+        Snapshot snapshot = current;
+        
+        // 从最短的倒排列表开始，逐个校验用户名是否包含完整关键字
+        Postings candidates = null;
+        for (String gram : grams(normalized)) {
+            Postings postings = snapshot.postings(gram);
+            if (postings == null) {
+                return Collections.emptyList();
+            }
+            if (candidates == null || postings.size() < candidates.size()) {
+                candidates = postings;
+            }
+        }
+        
+        Comparator<Match> ranking = Comparator.comparingInt(Match::rank)
+                .thenComparingInt(Match::position)
+                .thenComparingInt(Match::length)
+                .thenComparing(Comparator.comparingLong(Match::id).reversed());
+        
+        // 保留相关度最高的limit条，堆顶为当前最差的结果
+        PriorityQueue<Match> top = new PriorityQueue<>(limit + 1, ranking.reversed());
+        // 先读长度再读数组，与Postings的写入顺序对应
+        int count = candidates.size();
+        long[] ids = candidates.ids();
+        for (int i = 0; i < count && i < ids.length; i++) {
+            long id = ids[i];
+            String username = snapshot.username(id);
+            if (username == null) {
+                continue;
+            }
+            int position = username.indexOf(normalized);
+            if (position < 0) {
+                continue;
+            }
+            int rank = username.length() == normalized.length() ? 0 : (position == 0 ? 1 : 2);
+            top.offer(new Match(id, rank, position, username.length()));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        
+        List<Match> matches = new ArrayList<>(top);
+        matches.sort(ranking);
+        return matches.stream().map(Match::id).toList();
+    }
+    
+    synchronized void put(Long id, String username) {
+        current.put(id, username);
+        if (building != null) {
+            building.putTouched(id, username);
+        }
+    }
+    
+    synchronized void remove(Long id) {
+        current.remove(id);
+        if (building != null) {
+            building.removeTouched(id);
+        }
+    }
+    
+    private void afterCommit(Runnable action) {
+        if (enabled) {
+            TransactionCallbacks.afterCommit(action);
+        }
+    }
+    
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    private static Set<String> grams(String normalized) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= normalized.length(); i++) {
+            grams.add(normalized.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+    
+    /**
+     * 搜索命中结果
+     */
+    private record Match(long id, int rank, int position, int length) {
+    }
+    
+    /**
+     * 索引数据：用户ID到用户名的映射，以及三元组到用户ID的倒排列表
+     */
+    private static class Snapshot {
+        private final Map<Long, String> usernames = new ConcurrentHashMap<>();
+        private final Map<String, Postings> postings = new ConcurrentHashMap<>();
+        // 重建期间有增量变更的用户
+        private final Set<Long> touched = new HashSet<>();
+        
+        int size() { return usernames.size(); }
+        int gramCount() { return postings.size(); }
+        String username(long id) { return usernames.get(id); }
+        Postings postings(String gram) { return postings.get(gram); }
+        
+        void put(Long id, String username) {
+            String normalized = normalize(username);
+            String previous = usernames.put(id, normalized);
+            if (normalized.equals(previous)) {
+                return;
+            }
+            if (previous != null) {
+                unlink(id, previous);
+            }
+            for (String gram : grams(normalized)) {
+                postings.computeIfAbsent(gram, key -> new Postings()).add(id);
+            }
+        }
+        
+        void remove(Long id) {
+            String previous = usernames.remove(id);
+            if (previous != null) {
+                unlink(id, previous);
+            }
+        }
+        
+        void putIfUntouched(Long id, String username) {
+            if (!touched.contains(id)) {
+                put(id, username);
+            }
+        }
+        
+        void putTouched(Long id, String username) {
+            touched.add(id);
+            put(id, username);
+        }
+        
+        void removeTouched(Long id) {
+            touched.add(id);
+            remove(id);
+        }
+        
+        /**
+         * 释放倒排列表扩容留下的空余容量，全量构建完成后调用
+         */
+        void trim() {
+            postings.values().forEach(Postings::trim);
+            touched.clear();
+        }
+        
+        private void unlink(Long id, String username) {
+            for (String gram : grams(username)) {
+                postings.computeIfPresent(gram, (key, ids) -> ids.remove(id) && ids.size() == 0 ? null : ids);
+            }
+        }
+    }
+    
+    /**
+     * 倒排列表，按加入顺序保存用户ID的原始long数组
+     * 写入只在索引的锁内进行，查询不加锁：追加时先写数组元素再增加长度，
+     * 删除和扩容时复制出新数组后整体替换，查询方先读长度再读数组，不会读到未写入的元素；
+     * 删除期间并发的查询可能读到0或已移除的ID，由用户名校验过滤
+     */
+    private static final class Postings {
+        private volatile long[] ids = new long[4];
+        private volatile int size;
+        
+        int size() { return size; }
+        long[] ids() { return ids; }
+        
+        void add(long id) {
+            long[] current = ids;
+            int count = size;
+            if (count == current.length) {
+                current = Arrays.copyOf(current, count + (count >> 1) + 1);
+            }
+            current[count] = id;
+            ids = current;
+            size = count + 1;
+        }
+        
+        boolean remove(long id) {
+            long[] current = ids;
+            int count = size;
+            for (int i = 0; i < count; i++) {
+                if (current[i] == id) {
+                    long[] copy = new long[current.length];
+                    System.arraycopy(current, 0, copy, 0, i);
+                    System.arraycopy(current, i + 1, copy, i, count - i - 1);
+                    ids = copy;
+                    size = count - 1;
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        void trim() {
+            int count = size;
+            if (ids.length > count) {
+                ids = Arrays.copyOf(ids, count);
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.oauth2sso.web;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 当前登录用户参数注解
+ * 标注在控制器方法的UserDTO参数上，由CurrentUserArgumentResolver注入当前登录用户的信息；
+ * 未登录或用户不存在时注入null
+ * 
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CurrentUser {
+    
+    /**
+     * 是否需要个人简介
+     * 个人简介为TEXT列，默认不加载，注入的用户信息中可能为null
+     */
+    boolean includeBio() default false;
+}
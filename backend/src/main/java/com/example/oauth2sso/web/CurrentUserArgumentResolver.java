@@ -0,0 +1,82 @@
+package com.example.oauth2sso.web;
+
+import com.example.oauth2sso.dto.UserDTO;
+import com.example.oauth2sso.service.CurrentUserCache;
+import com.example.oauth2sso.service.UserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * 当前登录用户参数解析器
+ * 优先从CurrentUserCache获取用户信息，未命中时查询数据库并写入缓存；
+ * 个人简介只在@CurrentUser(includeBio = true)时加载；
+ * 解析结果保存在请求属性中，同一请求内只解析一次
+ * 
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+@Component
+public class CurrentUserArgumentResolver implements HandlerMethodArgumentResolver {
+    
+    private static final String REQUEST_ATTRIBUTE = CurrentUserArgumentResolver.class.getName() + ".USER";
+    
+    @Autowired
+    private CurrentUserCache currentUserCache;
+    
+    @Autowired
+    private UserService userService;
+    
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(CurrentUser.class)
+                && UserDTO.class.isAssignableFrom(parameter.getParameterType());
+    }
+    
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        boolean includeBio = parameter.getParameterAnnotation(CurrentUser.class).includeBio();
+        String attribute = includeBio ? REQUEST_ATTRIBUTE + ".WITH_BIO" : REQUEST_ATTRIBUTE;
+        Object resolved = webRequest.getAttribute(attribute, RequestAttributes.SCOPE_REQUEST);
+        if (resolved != null) {
+            return resolved;
+        }
+        
+        String githubId = currentGithubId();
+        if (githubId == null) {
+            return null;
+        }
+        
+        UserDTO user = currentUserCache.get(githubId, includeBio,
+                () -> userService.findViewByGithubId(githubId, includeBio).orElse(null)).orElse(null);
+        
+        if (user != null) {
+            webRequest.setAttribute(attribute, user, RequestAttributes.SCOPE_REQUEST);
+        }
+        return user;
+    }
+    
+    /**
+     * 从安全上下文中获取当前用户的GitHub ID
+     * 
+     * @return GitHub ID，未登录时返回null
+     */
+    private String currentGithubId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof OAuth2User oauth2User)) {
+            return null;
+        }
+        Object idObj = oauth2User.getAttribute("id");
+        return idObj != null ? String.valueOf(idObj) : null;
+    }
+}
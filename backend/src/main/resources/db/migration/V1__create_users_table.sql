@@ -0,0 +1,33 @@
+-- =================================================
+-- V1: 用户表基线
+-- 与 sql/init.sql 最初版本的表结构一致；已有数据库通过 baseline-on-migrate 标记为该版本，不会重复执行
+-- =================================================
+
+CREATE TABLE `users` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '用户ID',
+    `github_id` VARCHAR(50) NOT NULL UNIQUE COMMENT 'GitHub用户ID',
+    `username` VARCHAR(100) NOT NULL COMMENT '用户名',
+    `email` VARCHAR(255) COMMENT '邮箱地址',
+    `avatar_url` VARCHAR(500) COMMENT '头像URL',
+    `name` VARCHAR(200) COMMENT '真实姓名',
+    `bio` TEXT COMMENT '个人简介',
+    `location` VARCHAR(255) COMMENT '所在地',
+    `company` VARCHAR(255) COMMENT '公司',
+    `blog` VARCHAR(500) COMMENT '博客地址',
+    `public_repos` INT DEFAULT 0 COMMENT '公开仓库数量',
+    `followers` INT DEFAULT 0 COMMENT '关注者数量',
+    `following` INT DEFAULT 0 COMMENT '关注数量',
+    `last_login` TIMESTAMP NULL COMMENT '最后登录时间',
+    `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `updated_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    `delete_flag` CHAR(1) DEFAULT '0' COMMENT '删除标志 0-正常 1-删除',
+    `delete_user` VARCHAR(100) COMMENT '删除人',
+    `delete_time` TIMESTAMP NULL COMMENT '删除时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='用户信息表';
+
+CREATE INDEX `idx_github_id` ON `users` (`github_id`);
+CREATE INDEX `idx_username` ON `users` (`username`);
+CREATE INDEX `idx_email` ON `users` (`email`);
+CREATE INDEX `idx_delete_flag` ON `users` (`delete_flag`);
+CREATE INDEX `idx_created_at` ON `users` (`created_at`);
+CREATE INDEX `idx_last_login` ON `users` (`last_login`);
@@ -0,0 +1,53 @@
+-- =================================================
+-- V2: 按软删除查询重建用户表索引
+-- 所有查询都带 delete_flag = '0' 条件，改为以 delete_flag 开头的组合索引：
+--   idx_delete_flag_created_at_id  用户列表、键集分页和导出（ORDER BY created_at DESC, id DESC）
+--   idx_delete_flag_username       按用户名精确查找和前缀搜索（ORDER BY username）
+--   idx_delete_flag_last_login     按最后登录时间统计活跃用户（覆盖 id, last_login）
+-- 删除被组合索引替代的单列索引，以及与 github_id 唯一约束重复的 idx_github_id。
+-- 由 ddl-auto 建表的数据库可能没有这些单列索引，因此删除前先检查是否存在。
+-- =================================================
+
+CREATE INDEX `idx_delete_flag_created_at_id` ON `users` (`delete_flag`, `created_at`, `id`);
+CREATE INDEX `idx_delete_flag_username` ON `users` (`delete_flag`, `username`);
+CREATE INDEX `idx_delete_flag_last_login` ON `users` (`delete_flag`, `last_login`);
+
+SET @drop_index = IF(
+    (SELECT COUNT(*) FROM information_schema.statistics
+     WHERE table_schema = DATABASE() AND table_name = 'users' AND index_name = 'idx_github_id') > 0,
+    'DROP INDEX `idx_github_id` ON `users`', 'DO 0');
+PREPARE stmt FROM @drop_index;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @drop_index = IF(
+    (SELECT COUNT(*) FROM information_schema.statistics
+     WHERE table_schema = DATABASE() AND table_name = 'users' AND index_name = 'idx_username') > 0,
+    'DROP INDEX `idx_username` ON `users`', 'DO 0');
+PREPARE stmt FROM @drop_index;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @drop_index = IF(
+    (SELECT COUNT(*) FROM information_schema.statistics
+     WHERE table_schema = DATABASE() AND table_name = 'users' AND index_name = 'idx_delete_flag') > 0,
+    'DROP INDEX `idx_delete_flag` ON `users`', 'DO 0');
+PREPARE stmt FROM @drop_index;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @drop_index = IF(
+    (SELECT COUNT(*) FROM information_schema.statistics
+     WHERE table_schema = DATABASE() AND table_name = 'users' AND index_name = 'idx_created_at') > 0,
+    'DROP INDEX `idx_created_at` ON `users`', 'DO 0');
+PREPARE stmt FROM @drop_index;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @drop_index = IF(
+    (SELECT COUNT(*) FROM information_schema.statistics
+     WHERE table_schema = DATABASE() AND table_name = 'users' AND index_name = 'idx_last_login') > 0,
+    'DROP INDEX `idx_last_login` ON `users`', 'DO 0');
+PREPARE stmt FROM @drop_index;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,34 @@
+-- =================================================
+-- V3: 已删除用户归档表
+-- 软删除超过保留期的用户由后台任务分批移入 users_archive，缩小 users 表及其热点索引；
+-- 恢复用户时再从归档表移回 users。
+-- 归档表保留原用户ID；同一GitHub ID可能先后归档多条记录，因此 github_id 不设唯一约束。
+-- =================================================
+
+CREATE TABLE `users_archive` (
+    `id` BIGINT PRIMARY KEY COMMENT '用户ID（与users表相同）',
+    `github_id` VARCHAR(50) NOT NULL COMMENT 'GitHub用户ID',
+    `username` VARCHAR(100) NOT NULL COMMENT '用户名',
+    `email` VARCHAR(255) COMMENT '邮箱地址',
+    `avatar_url` VARCHAR(500) COMMENT '头像URL',
+    `name` VARCHAR(200) COMMENT '真实姓名',
+    `bio` TEXT COMMENT '个人简介',
+    `location` VARCHAR(255) COMMENT '所在地',
+    `company` VARCHAR(255) COMMENT '公司',
+    `blog` VARCHAR(500) COMMENT '博客地址',
+    `public_repos` INT DEFAULT 0 COMMENT '公开仓库数量',
+    `followers` INT DEFAULT 0 COMMENT '关注者数量',
+    `following` INT DEFAULT 0 COMMENT '关注数量',
+    `last_login` TIMESTAMP NULL COMMENT '最后登录时间',
+    `created_at` TIMESTAMP NULL COMMENT '创建时间',
+    `updated_at` TIMESTAMP NULL COMMENT '更新时间',
+    `delete_flag` CHAR(1) DEFAULT '1' COMMENT '删除标志 0-正常 1-删除',
+    `delete_user` VARCHAR(100) COMMENT '删除人',
+    `delete_time` TIMESTAMP NULL COMMENT '删除时间',
+    `archived_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '归档时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='已删除用户归档表';
+
+CREATE INDEX `idx_archive_github_id` ON `users_archive` (`github_id`);
+
+-- 归档任务按删除时间查找到期的已删除用户
+CREATE INDEX `idx_delete_flag_delete_time` ON `users` (`delete_flag`, `delete_time`);
@@ -539,6 +539,7 @@ const websocket = {
 
     /**
      * 开始心跳检测
+     * 服务端超过75秒未收到任何消息会关闭连接，SockJS连接收不到服务端Ping帧，靠这里的ping保持存活
      */
     startHeartbeat() {
         this.heartbeatInterval = setInterval(() => {
@@ -594,7 +595,7 @@ const websocket = {
                 break;
                 
             case 'HEARTBEAT':
-                // 心跳响应，无需处理
+                // 服务端发给SockJS连接的心跳，无需处理
                 break;
                 
             default:
@@ -0,0 +1,51 @@
+package com.example.oauth2sso.config;
+
+import com.example.oauth2sso.dto.UserDTO;
+import com.example.oauth2sso.entity.User;
+import com.example.oauth2sso.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Hibernate二级缓存配置测试
+ * 验证默认不开启Hibernate统计时，缓存命中率指标仍由JCache统计信息提供
+ *
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class HibernateCacheConfigTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void hitRatioIsReportedWithoutHibernateStatistics() {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        assertThat(sessionFactory.getStatistics().isStatisticsEnabled()).isFalse();
+
+        UserDTO user = userService.createUser(new UserDTO("cache-stats", "cache-stats", "cache-stats@example.com"));
+        sessionFactory.getCache().evictEntityData(User.class, user.getId());
+        // 第一次未命中并写入缓存，第二次命中
+        userService.findById(user.getId());
+        userService.findById(user.getId());
+
+        assertThat(meterRegistry.get("sso.user.cache.hit-ratio").tag("region", User.CACHE_REGION).gauge().value())
+                .isGreaterThan(0.0);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.oauth2sso.controller;
+
+import com.example.oauth2sso.dto.UserDTO;
+import com.example.oauth2sso.service.UserService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.oauth2Login;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 用户导出接口测试
+ * 验证导出以NDJSON逐行输出未删除用户，顺序与键集分页一致；
+ * 测试环境使用H2，fetch size取app.user.export.fetch-size的正数配置
+ *
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class UserControllerExportTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void exportsNotDeletedUsersAsNdjson() throws Exception {
+        List<Long> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            created.add(userService.createUser(
+                    new UserDTO("export-" + i, "export-user-" + i, "export" + i + "@example.com")).getId());
+        }
+        userService.deleteUser(created.get(2), "test");
+
+        MvcResult result = mockMvc.perform(get("/api/users/export").with(oauth2Login()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"users.ndjson\""))
+                .andReturn();
+        assertThat(result.getResponse().getContentType()).startsWith("application/x-ndjson");
+
+        List<Long> exported = new ArrayList<>();
+        for (String line : result.getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n")) {
+            JsonNode user = objectMapper.readTree(line);
+            if (user.get("githubId").asText().startsWith("export-")) {
+                exported.add(user.get("id").asLong());
+            }
+        }
+
+        // 按(创建时间, ID)倒序，已删除用户不导出
+        assertThat(exported).containsExactly(created.get(4), created.get(3), created.get(1), created.get(0));
+    }
+
+    @Test
+    void exportRequiresLogin() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/users/export")).andReturn();
+
+        assertThat(result.getResponse().getStatus()).isNotEqualTo(200);
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.oauth2sso.repository;
+
+import com.example.oauth2sso.entity.User;
+import jakarta.persistence.Column;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 用户表索引测试
+ * 测试库由实体的索引声明建表，先确认实体声明、Flyway迁移执行后的索引和生成的测试库三者的索引列一致，
+ * 再用H2的EXPLAIN确认按条件查找的查询命中对应的组合索引。
+ * H2选择索引时不考虑ORDER BY和OR条件，用户列表、键集分页和导出的排序改为按MySQL避免filesort的条件
+ * 检查索引结构，实际执行计划仍可在MySQL上用sql/explain_user_queries.sql确认
+ *
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class UserIndexUsageTest {
+
+    private static final Pattern CREATE_INDEX = Pattern.compile("CREATE INDEX `(\\w+)` ON `users` \\(([^)]*)\\)");
+
+    private static final Pattern DROP_INDEX = Pattern.compile("DROP INDEX `(\\w+)` ON `users`");
+
+    private static final Pattern CONSTANT_EQUALITY = Pattern.compile("u\\.(\\w+) = '[^']*'");
+
+    private static final Pattern ORDER_ITEM = Pattern.compile("u\\.(\\w+)(?: (ASC|DESC))?");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        // 空表时优化器不区分索引代价，先写入一批正常和已删除的用户
+        Integer existing = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM users WHERE github_id LIKE 'index-%'", Integer.class);
+        if (existing != null && existing > 0) {
+            return;
+        }
+        for (int i = 0; i < 200; i++) {
+            jdbcTemplate.update("INSERT INTO users (github_id, username, email, last_login, created_at, updated_at, " +
+                                "delete_flag) VALUES (?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, " +
+                                "CURRENT_TIMESTAMP, ?)",
+                                "index-" + i, "index-user-" + i, "index-" + i + "@example.com",
+                                i % 4 == 0 ? "1" : "0");
+        }
+        jdbcTemplate.execute("ANALYZE TABLE users");
+    }
+
+    @Test
+    void entityIndexesMatchMigratedSchema() throws IOException {
+        Map<String, List<String>> migrated = new LinkedHashMap<>();
+        Resource[] scripts = new PathMatchingResourcePatternResolver().getResources("classpath:db/migration/V*.sql");
+        Arrays.sort(scripts, (a, b) -> versionOf(a) - versionOf(b));
+        for (Resource script : scripts) {
+            String sql = script.getContentAsString(StandardCharsets.UTF_8);
+            Matcher created = CREATE_INDEX.matcher(sql);
+            while (created.find()) {
+                migrated.put(created.group(1), columns(created.group(2).replace("`", "")));
+            }
+            Matcher dropped = DROP_INDEX.matcher(sql);
+            while (dropped.find()) {
+                migrated.remove(dropped.group(1));
+            }
+        }
+
+        assertThat(migrated).isEqualTo(declaredIndexes());
+    }
+
+    @Test
+    void testSchemaIndexesMatchEntity() {
+        // 测试库由ddl-auto根据实体建表，确认生成的索引列与实体声明一致
+        Map<String, List<String>> generated = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT INDEX_NAME, COLUMN_NAME FROM INFORMATION_SCHEMA.INDEX_COLUMNS " +
+                           "WHERE LOWER(TABLE_NAME) = 'users' AND LOWER(INDEX_NAME) LIKE 'idx!_%' ESCAPE '!' " +
+                           "ORDER BY INDEX_NAME, ORDINAL_POSITION",
+                           rs -> {
+                               generated.computeIfAbsent(rs.getString(1).toLowerCase(Locale.ROOT), key -> new ArrayList<>())
+                                       .add(rs.getString(2).toLowerCase(Locale.ROOT));
+                           });
+
+        assertThat(generated).isEqualTo(declaredIndexes());
+    }
+
+    @Test
+    void orderedQueriesAreServedByAnIndex() {
+        // H2选择索引时不考虑ORDER BY，这里按MySQL避免filesort的条件检查索引结构：
+        // 索引以常量等值条件的列开头，其后依次是ORDER BY的列，且所有排序方向一致；
+        // InnoDB二级索引末尾隐含主键id
+        List<List<String>> indexes = declaredIndexes().values().stream()
+                .map(columns -> {
+                    List<String> withPrimaryKey = new ArrayList<>(columns);
+                    if (!withPrimaryKey.contains("id")) {
+                        withPrimaryKey.add("id");
+                    }
+                    return withPrimaryKey;
+                })
+                .toList();
+
+        List<Method> ordered = Arrays.stream(UserRepository.class.getDeclaredMethods())
+                .filter(method -> method.isAnnotationPresent(Query.class))
+                .filter(method -> method.getAnnotation(Query.class).value().contains("ORDER BY"))
+                .toList();
+        assertThat(ordered).isNotEmpty();
+
+        for (Method method : ordered) {
+            String jpql = method.getAnnotation(Query.class).value();
+            List<String> equalities = new ArrayList<>();
+            Matcher equality = CONSTANT_EQUALITY.matcher(jpql);
+            while (equality.find()) {
+                equalities.add(column(equality.group(1)));
+            }
+            List<String> orderColumns = new ArrayList<>();
+            Set<Boolean> descending = new LinkedHashSet<>();
+            Matcher item = ORDER_ITEM.matcher(jpql.substring(jpql.indexOf("ORDER BY")));
+            while (item.find()) {
+                orderColumns.add(column(item.group(1)));
+                descending.add("DESC".equals(item.group(2)));
+            }
+
+            assertThat(descending).as("%s的排序方向", method.getName()).hasSize(1);
+            assertThat(indexes).as("%s需要以%s开头、其后为%s的索引", method.getName(), equalities, orderColumns)
+                    .anySatisfy(index -> {
+                        assertThat(index.subList(0, Math.min(equalities.size(), index.size())))
+                                .containsExactlyInAnyOrderElementsOf(equalities);
+                        assertThat(index.subList(equalities.size(), index.size())).startsWith(orderColumns.toArray(String[]::new));
+                    });
+        }
+    }
+
+    @Test
+    void usernamePrefixSearchUsesUsernameIndex() {
+        assertThat(explain("SELECT * FROM users WHERE username LIKE 'index-user-1%' AND delete_flag = '0' " +
+                           "ORDER BY username, id LIMIT 50"))
+                .contains("idx_delete_flag_username");
+    }
+
+    @Test
+    void usernameLookupUsesUsernameIndex() {
+        assertThat(explain("SELECT * FROM users WHERE username = 'index-user-1' AND delete_flag = '0'"))
+                .contains("idx_delete_flag_username");
+    }
+
+    @Test
+    void activeUserCountUsesLastLoginIndex() {
+        assertThat(explain("SELECT id, last_login FROM users WHERE delete_flag = '0' " +
+                           "AND last_login >= TIMESTAMP '2024-12-20 00:00:00'"))
+                .contains("idx_delete_flag_last_login");
+    }
+
+    @Test
+    void archiveScanUsesDeleteTimeIndex() {
+        assertThat(explain("SELECT id FROM users WHERE delete_flag = '1' " +
+                           "AND delete_time < TIMESTAMP '2024-12-20 00:00:00'"))
+                .contains("idx_delete_flag_delete_time");
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 实体声明的索引，key为索引名，value为按顺序排列的列名
+     */
+    private static Map<String, List<String>> declaredIndexes() {
+        Map<String, List<String>> declared = new LinkedHashMap<>();
+        for (Index index : User.class.getAnnotation(Table.class).indexes()) {
+            declared.put(index.name(), columns(index.columnList()));
+        }
+        return declared;
+    }
+
+    private static List<String> columns(String columnList) {
+        return Arrays.stream(columnList.split(","))
+                .map(column -> column.trim().toLowerCase(Locale.ROOT))
+                .toList();
+    }
+
+    /**
+     * 实体属性对应的列名
+     */
+    private static String column(String property) {
+        try {
+            Column column = User.class.getDeclaredField(property).getAnnotation(Column.class);
+            return column != null ? column.name() : property;
+        } catch (NoSuchFieldException e) {
+            throw new IllegalArgumentException("User没有属性: " + property, e);
+        }
+    }
+
+    private static int versionOf(Resource script) {
+        String filename = script.getFilename();
+        return Integer.parseInt(filename.substring(1, filename.indexOf("__")));
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.oauth2sso.repository;
+
+import com.example.oauth2sso.repository.UserLoginUpsertRepository.LoginProfile;
+import com.example.oauth2sso.repository.UserLoginUpsertRepository.UpsertResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 用户登录信息upsert测试
+ * 验证同一账号并发首次登录只创建一条记录，且只有一次登录被识别为新建；
+ * 沙箱中没有MySQL，MySQL语句通过检查语句文本和生成键的解析来验证
+ *
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class UserLoginUpsertRepositoryTest {
+
+    @Autowired
+    private UserLoginUpsertRepository upsertRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void concurrentFirstLoginCreatesSingleRow() throws Exception {
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<UpsertResult>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return upsertRepository.upsert(profile("upsert-concurrent", "bob"), LocalDateTime.now());
+                }));
+            }
+            start.countDown();
+
+            List<UpsertResult> results = new ArrayList<>();
+            for (Future<UpsertResult> future : futures) {
+                results.add(future.get());
+            }
+
+            assertThat(results).extracting(UpsertResult::id).containsOnly(results.get(0).id());
+            assertThat(results).filteredOn(UpsertResult::created).hasSize(1);
+            assertThat(results).noneMatch(UpsertResult::deleted);
+            assertThat(countByGithubId("upsert-concurrent")).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void repeatedLoginUpdatesProfile() {
+        UpsertResult first = upsertRepository.upsert(profile("upsert-repeat", "alice"), LocalDateTime.now());
+        UpsertResult second = upsertRepository.upsert(profile("upsert-repeat", "alice"), LocalDateTime.now());
+        UpsertResult third = upsertRepository.upsert(profile("upsert-repeat", "alice-renamed"), LocalDateTime.now());
+
+        assertThat(first.created()).isTrue();
+        assertThat(second.created()).isFalse();
+        assertThat(third.created()).isFalse();
+        assertThat(third.id()).isEqualTo(first.id());
+        assertThat(countByGithubId("upsert-repeat")).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT username FROM users WHERE github_id = ?",
+                String.class, "upsert-repeat")).isEqualTo("alice-renamed");
+    }
+
+    @Test
+    void deletedUserIsNotUpdated() {
+        upsertRepository.upsert(profile("upsert-deleted", "carol"), LocalDateTime.now());
+        jdbcTemplate.update("UPDATE users SET delete_flag = '1' WHERE github_id = ?", "upsert-deleted");
+
+        UpsertResult result = upsertRepository.upsert(profile("upsert-deleted", "carol-renamed"), LocalDateTime.now());
+
+        assertThat(result.deleted()).isTrue();
+        assertThat(result.created()).isFalse();
+        assertThat(jdbcTemplate.queryForObject("SELECT username FROM users WHERE github_id = ?",
+                String.class, "upsert-deleted")).isEqualTo("carol");
+    }
+
+    @Test
+    void repeatedLoginKeepsUpdatedAtUnlessProfileChanges() {
+        LocalDateTime firstLogin = LocalDateTime.of(2024, 12, 26, 10, 0);
+        upsertRepository.upsert(profile("upsert-updated-at", "dave"), firstLogin);
+
+        upsertRepository.upsert(profile("upsert-updated-at", "dave"), firstLogin.plusMinutes(5));
+        assertThat(updatedAt("upsert-updated-at")).isEqualTo(firstLogin);
+        assertThat(jdbcTemplate.queryForObject("SELECT last_login FROM users WHERE github_id = ?",
+                LocalDateTime.class, "upsert-updated-at")).isEqualTo(firstLogin.plusMinutes(5));
+
+        upsertRepository.upsert(profile("upsert-updated-at", "dave-renamed"), firstLogin.plusMinutes(10));
+        assertThat(updatedAt("upsert-updated-at")).isEqualTo(firstLogin.plusMinutes(10));
+    }
+
+    @Test
+    void mysqlStatementLeavesUpdatedAtAloneWithoutProfileChange() {
+        String sql = UserLoginUpsertRepository.MYSQL_UPSERT_SQL;
+        String updates = sql.substring(sql.indexOf("ON DUPLICATE KEY UPDATE"));
+
+        assertThat(sql).doesNotContain("GREATEST", "INTERVAL", "VALUES(");
+        assertThat(updates).contains("updated_at = IF(delete_flag = '0' AND NOT (username <=> new.username AND ");
+        assertThat(updates).contains("following <=> new.following), new.updated_at, updated_at)");
+        // MySQL按顺序求值赋值表达式，updated_at必须在资料列被覆盖之前比较
+        assertThat(updates.indexOf("updated_at = ")).isLessThan(updates.indexOf("username = "));
+        assertThat(updates).contains("LAST_INSERT_ID(id + " + UserLoginUpsertRepository.UPDATED_FLAG + ") - "
+                + UserLoginUpsertRepository.UPDATED_FLAG, "id + LAST_INSERT_ID(0)");
+    }
+
+    @Test
+    void generatedKeysDistinguishInsertUpdateAndDeleted() {
+        long flag = UserLoginUpsertRepository.UPDATED_FLAG;
+
+        assertThat(UserLoginUpsertRepository.fromGeneratedKeys(List.of(Map.of("GENERATED_KEY", BigInteger.valueOf(42)))))
+                .isEqualTo(new UpsertResult(42L, true, false));
+        assertThat(UserLoginUpsertRepository.fromGeneratedKeys(List.of(
+                Map.of("GENERATED_KEY", BigInteger.valueOf(flag + 42)),
+                Map.of("GENERATED_KEY", BigInteger.valueOf(flag + 43)))))
+                .isEqualTo(new UpsertResult(42L, false, false));
+        assertThat(UserLoginUpsertRepository.fromGeneratedKeys(List.of()))
+                .isEqualTo(new UpsertResult(0L, false, true));
+    }
+
+    private static LoginProfile profile(String githubId, String username) {
+        return new LoginProfile(githubId, username, username + "@example.com", null, username, null,
+                                null, null, null, 1, 2, 3);
+    }
+
+    private LocalDateTime updatedAt(String githubId) {
+        return jdbcTemplate.queryForObject("SELECT updated_at FROM users WHERE github_id = ?",
+                LocalDateTime.class, githubId);
+    }
+
+    private long countByGithubId(String githubId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE github_id = ?", Long.class, githubId);
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.oauth2sso.repository;
+
+import com.example.oauth2sso.entity.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 用户列表分页基准
+ * 在H2中写入20万个用户，分别翻到第1000、10000和100000条之后，对比OFFSET分页与按(创建时间, ID)游标的键集分页。
+ * H2只能正向读取索引来满足ORDER BY，且ORDER BY需从delete_flag开始，所以仓库中的倒序查询在H2上无论哪种分页都会扫描全部行；
+ * MySQL对这两条查询反向扫描idx_delete_flag_created_at_id。这里用正序的等价查询让H2按索引顺序读取，
+ * 比较两种分页的扫描行数和耗时。通过 mvn test -Pbenchmark 运行，常规构建不运行
+ *
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class UserPageBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserPageBenchmark.class);
+
+    private static final int USERS = 200_000;
+
+    private static final int PAGE_SIZE = 20;
+
+    private static final int ITERATIONS = 500;
+
+    private static final String OFFSET_SQL = "SELECT * FROM users WHERE delete_flag = '0' " +
+            "ORDER BY delete_flag, created_at, id LIMIT ? OFFSET ?";
+
+    // created_at >= ? 与OR条件等价但可以作为索引范围，H2不会把OR条件转换为范围
+    private static final String KEYSET_SQL = "SELECT * FROM users WHERE delete_flag = '0' AND created_at >= ? " +
+            "AND (created_at > ? OR (created_at = ? AND id > ?)) ORDER BY delete_flag, created_at, id LIMIT ?";
+
+    private static final Pattern SCAN_COUNT = Pattern.compile("scanCount: (\\d+)");
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM users WHERE github_id LIKE 'page-bench-%'");
+    }
+
+    @Test
+    void offsetVersusKeysetAtIncreasingDepth() {
+        insertUsers();
+
+        for (int depth : new int[] {1_000, 10_000, 100_000}) {
+            // 仓库中的两条倒序查询取到同一页
+            Map<String, Object> previous = row("DESC", depth - 1);
+            List<User> offsetPage = userRepository.findFirstPageNotDeleted(PageRequest.of(depth / PAGE_SIZE, PAGE_SIZE));
+            List<User> keysetPage = userRepository.findPageNotDeletedAfter(
+                    ((Timestamp) previous.get("created_at")).toLocalDateTime(),
+                    ((Number) previous.get("id")).longValue(), PageRequest.ofSize(PAGE_SIZE));
+            assertThat(keysetPage).extracting(User::getId)
+                    .containsExactlyElementsOf(offsetPage.stream().map(User::getId).toList());
+
+            Map<String, Object> cursor = row("ASC", depth - 1);
+            Object[] offsetArgs = {PAGE_SIZE, depth};
+            Object[] keysetArgs = {cursor.get("created_at"), cursor.get("created_at"), cursor.get("created_at"),
+                                   cursor.get("id"), PAGE_SIZE};
+            assertThat(ids(KEYSET_SQL, keysetArgs)).containsExactlyElementsOf(ids(OFFSET_SQL, offsetArgs));
+
+            long offsetScanned = scanCount(OFFSET_SQL, offsetArgs);
+            long keysetScanned = scanCount(KEYSET_SQL, keysetArgs);
+            assertThat(keysetScanned).isLessThan(offsetScanned);
+
+            long offsetMicros = micros(OFFSET_SQL, offsetArgs);
+            long keysetMicros = micros(KEYSET_SQL, keysetArgs);
+
+            logger.info("用户列表分页基准: users={}, 翻页深度={}, OFFSET分页 扫描{}行 {} us/页, 键集分页 扫描{}行 {} us/页",
+                        USERS, depth, offsetScanned, offsetMicros, keysetScanned, keysetMicros);
+        }
+    }
+
+    private Map<String, Object> row(String direction, int offset) {
+        return jdbcTemplate.queryForMap("SELECT created_at, id FROM users WHERE delete_flag = '0' " +
+                                        "ORDER BY created_at " + direction + ", id " + direction +
+                                        " LIMIT 1 OFFSET ?", offset);
+    }
+
+    private List<Long> ids(String sql, Object[] args) {
+        return jdbcTemplate.query(sql, (rs, rowNum) -> rs.getLong("id"), args);
+    }
+
+    private long micros(String sql, Object[] args) {
+        // 预热
+        for (int i = 0; i < ITERATIONS; i++) {
+            jdbcTemplate.queryForList(sql, args);
+        }
+        long started = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            jdbcTemplate.queryForList(sql, args);
+        }
+        return (System.nanoTime() - started) / ITERATIONS / 1000;
+    }
+
+    /**
+     * 从H2的EXPLAIN ANALYZE结果中取出扫描行数
+     */
+    private long scanCount(String sql, Object[] args) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN ANALYZE " + sql, String.class, args);
+        Matcher matcher = SCAN_COUNT.matcher(plan);
+        assertThat(matcher.find()).as(plan).isTrue();
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private void insertUsers() {
+        LocalDateTime base = LocalDateTime.now().minusDays(1);
+        List<Object[]> rows = new ArrayList<>(10_000);
+        for (int i = 0; i < USERS; i++) {
+            // 每10个用户共用一个创建时间，翻页需要依靠ID区分先后
+            Timestamp createdAt = Timestamp.valueOf(base.plusSeconds(i / 10));
+            rows.add(new Object[] {"page-bench-" + i, "page-bench-user-" + i, createdAt, createdAt});
+            if (rows.size() == 10_000) {
+                insert(rows);
+                rows.clear();
+            }
+        }
+        insert(rows);
+    }
+
+    private void insert(List<Object[]> rows) {
+        jdbcTemplate.batchUpdate("INSERT INTO users (github_id, username, created_at, updated_at, delete_flag) " +
+                                 "VALUES (?, ?, ?, ?, '0')", rows);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.oauth2sso.service;
+
+import com.example.oauth2sso.dto.UserDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 当前登录用户缓存测试
+ * 验证加载在缓存锁外执行，加载期间的写入不被旧的加载结果覆盖
+ *
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+class CurrentUserCacheTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private CurrentUserCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new CurrentUserCache();
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "ttlMillis", 60000L);
+        ReflectionTestUtils.setField(cache, "maxSize", 100L);
+        cache.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void writeDuringSlowLoadIsNotBlockedOrOverwritten() throws Exception {
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        Future<Optional<UserDTO>> loading = executor.submit(() -> cache.get("github-1", true, () -> {
+            loadStarted.countDown();
+            awaitUninterruptibly(releaseLoad);
+            return user("alice");
+        }));
+        assertThat(loadStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // 加载进行中，同一用户的写入不等待加载完成
+        Future<?> writing = executor.submit(() -> cache.put(user("alice-renamed")));
+        writing.get(1, TimeUnit.SECONDS);
+        releaseLoad.countDown();
+
+        assertThat(loading.get(5, TimeUnit.SECONDS)).map(UserDTO::getUsername).contains("alice");
+        assertThat(cache.get("github-1", true, () -> user("unexpected")))
+                .map(UserDTO::getUsername).contains("alice-renamed");
+    }
+
+    @Test
+    void loadWithoutBioDoesNotReplaceFullEntry() {
+        cache.put(user("alice"));
+
+        cache.get("github-1", false, () -> user("unexpected"));
+
+        assertThat(cache.get("github-1", true, () -> user("unexpected")))
+                .map(UserDTO::getUsername).contains("alice");
+    }
+
+    private static UserDTO user(String username) {
+        return new UserDTO("github-1", username, username + "@example.com");
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
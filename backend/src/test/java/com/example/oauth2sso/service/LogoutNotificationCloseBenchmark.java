@@ -0,0 +1,105 @@
+package com.example.oauth2sso.service;
+
+import ch.qos.logback.classic.Level;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 登出通知连接关闭基准
+ * 分别注册2000、20000和100000个连接（每个用户两个标签页），由8个线程同时全部关闭，
+ * 测量每次关闭的平均耗时；关闭按WebSocket会话ID反向索引处理，耗时不应随连接数增长。
+ * 通过 mvn test -Pbenchmark 运行，常规构建不运行
+ *
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+class LogoutNotificationCloseBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogoutNotificationCloseBenchmark.class);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().findAndRegisterModules();
+
+    private static final int THREADS = 8;
+
+    @Test
+    void massCloseAtIncreasingSocketCounts() throws Exception {
+        ch.qos.logback.classic.Logger serviceLogger =
+                (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(LogoutNotificationService.class);
+        Level level = serviceLogger.getLevel();
+        serviceLogger.setLevel(Level.WARN);
+        try {
+            // 预热
+            measure(1_000);
+            for (int users : new int[] {1_000, 10_000, 50_000}) {
+                long perClose = measure(users);
+                logger.info("登出通知连接关闭基准: sockets={}, threads={}, 每次关闭={} ns", users * 2, THREADS, perClose);
+            }
+        } finally {
+            serviceLogger.setLevel(level);
+        }
+    }
+
+    private long measure(int users) throws Exception {
+        LogoutNotificationService service = newService();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<TestWebSocketSession> sessions = LogoutNotificationServiceTest.registerTwoTabsPerUser(service, users);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = thread; i < sessions.size(); i += THREADS) {
+                        TestWebSocketSession session = sessions.get(i);
+                        session.disconnect();
+                        service.handleWebSocketClose(session, CloseStatus.GOING_AWAY);
+                    }
+                    return null;
+                }));
+            }
+
+            long started = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long perClose = (System.nanoTime() - started) / sessions.size();
+
+            assertThat((Map<?, ?>) ReflectionTestUtils.getField(service, "socketsById")).isEmpty();
+            return perClose;
+        } finally {
+            executor.shutdownNow();
+            service.shutdown();
+        }
+    }
+
+    private static LogoutNotificationService newService() {
+        LogoutNotificationService service = new LogoutNotificationService();
+        ReflectionTestUtils.setField(service, "objectMapper", OBJECT_MAPPER);
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "sendTimeLimit", 10000);
+        ReflectionTestUtils.setField(service, "bufferSizeLimit", 524288);
+        ReflectionTestUtils.setField(service, "overflowStrategy", "drop");
+        ReflectionTestUtils.setField(service, "idleTimeoutMillis", 75000L);
+        ReflectionTestUtils.setField(service, "heartbeatMaxDurationMillis", 50L);
+        service.init();
+        return service;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.oauth2sso.service;
+
+import com.example.oauth2sso.service.LogoutNotificationService.LogoutNotification;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.TextMessage;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 登出通知编码分配基准
+ * 向同一用户的1000个连接广播一条通知，测量提交线程上的分配字节数：
+ * 每个连接各自序列化、序列化为字节数组后再解码、序列化一次为String，以及完整的广播提交路径。
+ * 容器写出时的UTF-8编码发生在发送线程上，不计入。通过 mvn test -Pbenchmark 运行，常规构建不运行
+ *
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+class LogoutNotificationEncodingBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogoutNotificationEncodingBenchmark.class);
+
+    private static final int RECIPIENTS = 1000;
+
+    private static final int ROUNDS = 200;
+
+    private static final ObjectMapper OBJECT_MAPPER = Jackson2ObjectMapperBuilder.json().build();
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void fanOutAllocation() throws Exception {
+        ObjectWriter writer = OBJECT_MAPPER.writerFor(LogoutNotification.class);
+        LogoutNotification notification =
+                new LogoutNotification("LOGOUT", "alice", "您的账号已在其他设备登出", Instant.now());
+
+        long perRecipient = allocatedPerRound(() -> {
+            for (int i = 0; i < RECIPIENTS; i++) {
+                new TextMessage(writer.writeValueAsString(notification));
+            }
+        });
+        long bytesThenDecode = allocatedPerRound(() -> new TextMessage(writer.writeValueAsBytes(notification)));
+        long stringOnce = allocatedPerRound(() -> new TextMessage(writer.writeValueAsString(notification)));
+
+        LogoutNotificationService service = newService();
+        try {
+            for (int i = 0; i < RECIPIENTS; i++) {
+                service.registerWebSocketSession("http-" + i, "alice", new TestWebSocketSession("ws-" + i));
+            }
+            long broadcast = allocatedPerRound(() -> service.broadcastLogoutNotification("alice", "您的账号已在其他设备登出"));
+
+            logger.info("登出通知编码分配基准: recipients={}, 每个连接序列化={} B, 字节数组再解码={} B, 序列化一次为String={} B",
+                        RECIPIENTS, perRecipient, bytesThenDecode, stringOnce);
+            logger.info("登出通知编码分配基准: 完整广播提交路径={} B/次, 每个连接={} B", broadcast, broadcast / RECIPIENTS);
+        } finally {
+            service.shutdown();
+        }
+        assertThat(stringOnce).isLessThan(bytesThenDecode);
+    }
+
+    private long allocatedPerRound(Action action) throws Exception {
+        for (int i = 0; i < ROUNDS; i++) {
+            action.run();
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < ROUNDS; i++) {
+            action.run();
+        }
+        return (threads.getCurrentThreadAllocatedBytes() - before) / ROUNDS;
+    }
+
+    private static LogoutNotificationService newService() {
+        LogoutNotificationService service = new LogoutNotificationService();
+        ReflectionTestUtils.setField(service, "objectMapper", OBJECT_MAPPER);
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "sendTimeLimit", 10000);
+        ReflectionTestUtils.setField(service, "bufferSizeLimit", Integer.MAX_VALUE);
+        ReflectionTestUtils.setField(service, "overflowStrategy", "drop");
+        ReflectionTestUtils.setField(service, "idleTimeoutMillis", 75000L);
+        ReflectionTestUtils.setField(service, "heartbeatMaxDurationMillis", 50L);
+        service.init();
+        return service;
+    }
+
+    /**
+     * 被测量的操作
+     */
+    @FunctionalInterface
+    private interface Action {
+        void run() throws Exception;
+    }
+}
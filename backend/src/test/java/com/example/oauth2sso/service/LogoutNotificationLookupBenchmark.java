@@ -0,0 +1,80 @@
+package com.example.oauth2sso.service;
+
+import ch.qos.logback.classic.Level;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * 登出通知查找基准
+ * 分别注册1000和50000个连接（每个用户两个标签页），测量按HTTP会话发送和按用户广播的单次耗时。
+ * 通过 mvn test -Pbenchmark 运行，常规构建不运行
+ *
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+class LogoutNotificationLookupBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogoutNotificationLookupBenchmark.class);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().findAndRegisterModules();
+
+    private static final int ITERATIONS = 20_000;
+
+    @Test
+    void lookupsAtOneThousandAndFiftyThousandSockets() {
+        ch.qos.logback.classic.Logger serviceLogger =
+                (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(LogoutNotificationService.class);
+        Level level = serviceLogger.getLevel();
+        serviceLogger.setLevel(Level.WARN);
+        try {
+            for (int users : new int[] {500, 25_000}) {
+                measure(users);
+            }
+        } finally {
+            serviceLogger.setLevel(level);
+        }
+    }
+
+    private void measure(int users) {
+        LogoutNotificationService service = newService();
+        try {
+            LogoutNotificationServiceTest.registerTwoTabsPerUser(service, users);
+
+            // 预热
+            run(service, users);
+            long started = System.nanoTime();
+            run(service, users);
+            long perLookup = (System.nanoTime() - started) / (ITERATIONS * 2L);
+
+            logger.info("登出通知查找基准: sockets={}, 每次查找并提交发送={} ns", users * 2, perLookup);
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    private static void run(LogoutNotificationService service, int users) {
+        for (int i = 0; i < ITERATIONS; i++) {
+            int user = i % users;
+            service.sendLogoutNotification("http-" + user + "-a", "user-" + user, "测试");
+            service.broadcastLogoutNotification("user-" + user, "测试");
+        }
+    }
+
+    private static LogoutNotificationService newService() {
+        LogoutNotificationService service = new LogoutNotificationService();
+        ReflectionTestUtils.setField(service, "objectMapper", OBJECT_MAPPER);
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "sendTimeLimit", 10000);
+        ReflectionTestUtils.setField(service, "bufferSizeLimit", 524288);
+        ReflectionTestUtils.setField(service, "overflowStrategy", "drop");
+        ReflectionTestUtils.setField(service, "idleTimeoutMillis", 75000L);
+        ReflectionTestUtils.setField(service, "heartbeatMaxDurationMillis", 50L);
+        service.init();
+        return service;
+    }
+}
@@ -0,0 +1,309 @@
+package com.example.oauth2sso.service;
+
+import ch.qos.logback.classic.Level;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.sockjs.transport.SockJsSession;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * 登出通知服务测试
+ * 使用测试会话代替真实WebSocket连接，验证连接索引在并发注册与关闭时保持一致、按用户和HTTP会话查找只访问目标连接，
+ * 同一连接的消息按提交顺序发送、慢连接被关闭且不阻塞发送方、心跳在多次检查之间轮转所有连接，
+ * 以及大量连接同时关闭时复用预先注册的计数器
+ *
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+class LogoutNotificationServiceTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().findAndRegisterModules();
+
+    private final List<LogoutNotificationService> services = new ArrayList<>();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ch.qos.logback.classic.Logger serviceLogger =
+            (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(LogoutNotificationService.class);
+
+    private Level serviceLogLevel;
+
+    @BeforeEach
+    void setUp() {
+        // 批量注册和关闭连接时不逐条输出INFO日志
+        serviceLogLevel = serviceLogger.getLevel();
+        serviceLogger.setLevel(Level.WARN);
+    }
+
+    @AfterEach
+    void tearDown() {
+        services.forEach(LogoutNotificationService::shutdown);
+        serviceLogger.setLevel(serviceLogLevel);
+    }
+
+    @Test
+    void closeRacingRegistrationLeavesNoDanglingIndexes() throws Exception {
+        LogoutNotificationService service = newService();
+        int sockets = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < sockets; i++) {
+                TestWebSocketSession session = new TestWebSocketSession("ws-race-" + i);
+                String httpSessionId = "http-race-" + i;
+                String username = "user-race-" + (i % 10);
+                CountDownLatch start = new CountDownLatch(1);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    service.registerWebSocketSession(httpSessionId, username, session);
+                    return null;
+                }));
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    session.disconnect();
+                    service.handleWebSocketClose(session, CloseStatus.GOING_AWAY);
+                    return null;
+                }));
+                start.countDown();
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(index(service, "socketsById")).isEmpty();
+        assertThat(index(service, "socketsByUser")).isEmpty();
+        assertThat(index(service, "socketsByHttpSession")).isEmpty();
+    }
+
+    @Test
+    void lookupsVisitOnlyTargetSockets() {
+        LogoutNotificationService service = newService();
+        List<TestWebSocketSession> sessions = registerTwoTabsPerUser(service, 2000);
+        sessions.forEach(TestWebSocketSession::resetOpenChecks);
+
+        service.broadcastLogoutNotification("user-0", "测试");
+        service.sendLogoutNotification("http-1-a", "user-1", "测试");
+
+        // 按用户和HTTP会话查找只检查目标连接，与连接总数无关
+        assertThat(sessions).filteredOn(session -> session.getOpenChecks() > 0)
+                .extracting(TestWebSocketSession::getId)
+                .containsExactlyInAnyOrder("ws-0-a", "ws-0-b", "ws-1-a");
+    }
+
+    @Test
+    void massCloseReusesPreRegisteredCounters() throws Exception {
+        LogoutNotificationService service = newService();
+        int sockets = 20_000;
+        List<TestWebSocketSession> sessions = new ArrayList<>();
+        for (int i = 0; i < sockets; i++) {
+            TestWebSocketSession session = new TestWebSocketSession("ws-close-" + i);
+            service.registerWebSocketSession("http-close-" + i, "user-close-" + (i % 1000), session);
+            sessions.add(session);
+        }
+        int meters = meterRegistry.find("sso.websocket.closed").counters().size();
+        CloseStatus[] statuses = {CloseStatus.NORMAL, CloseStatus.GOING_AWAY, CloseStatus.NO_CLOSE_FRAME,
+                                  new CloseStatus(4001)};
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < sockets; i++) {
+                TestWebSocketSession session = sessions.get(i);
+                CloseStatus status = statuses[i % statuses.length];
+                futures.add(executor.submit(() -> {
+                    session.disconnect();
+                    service.handleWebSocketClose(session, status);
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(index(service, "socketsById")).isEmpty();
+        assertThat(index(service, "socketsByUser")).isEmpty();
+        assertThat(index(service, "socketsByHttpSession")).isEmpty();
+        // 关闭过程中没有注册新的计数器，自定义关闭码计入other
+        assertThat(meterRegistry.find("sso.websocket.closed").counters()).hasSize(meters);
+        assertThat(closedCount("1000")).isEqualTo(sockets / 4);
+        assertThat(closedCount("1001")).isEqualTo(sockets / 4);
+        assertThat(closedCount("1006")).isEqualTo(sockets / 4);
+        assertThat(closedCount("other")).isEqualTo(sockets / 4);
+    }
+
+    @Test
+    void messagesToOneSocketKeepSubmissionOrder() throws Exception {
+        LogoutNotificationService service = newService();
+        TestWebSocketSession session = new TestWebSocketSession("ws-order");
+        session.setSendDelayMillis(1);
+        service.registerWebSocketSession("http-order", "user-order", session);
+
+        int messages = 200;
+        for (int i = 0; i < messages; i++) {
+            service.sendLogoutNotification("http-order", "user-order", "message-" + i);
+        }
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> session.getSentTexts().size() == messages + 1);
+        List<String> reasons = new ArrayList<>();
+        for (String text : session.getSentTexts()) {
+            reasons.add(OBJECT_MAPPER.readTree(text).get("message").asText());
+        }
+        assertThat(reasons.get(0)).isEqualTo("WebSocket连接已建立");
+        for (int i = 0; i < messages; i++) {
+            assertThat(reasons.get(i + 1)).isEqualTo("message-" + i);
+        }
+    }
+
+    @Test
+    void slowSocketIsClosedWithoutBlockingSender() {
+        LogoutNotificationService service = newService();
+        ReflectionTestUtils.setField(service, "bufferSizeLimit", 1024);
+        TestWebSocketSession slow = new TestWebSocketSession("ws-slow");
+        slow.setSendDelayMillis(200);
+        TestWebSocketSession fast = new TestWebSocketSession("ws-fast");
+        service.registerWebSocketSession("http-slow", "user-slow", slow);
+        service.registerWebSocketSession("http-fast", "user-fast", fast);
+
+        long started = System.nanoTime();
+        for (int i = 0; i < 50; i++) {
+            service.sendLogoutNotification("http-slow", "user-slow", "message-" + i);
+            if (i < 5) {
+                service.sendLogoutNotification("http-fast", "user-fast", "message-" + i);
+            }
+        }
+        // 慢连接每条消息写出需要200ms，提交通知的线程不等待写出
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofMillis(200));
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> !slow.isOpen());
+        await().atMost(Duration.ofSeconds(5)).until(() -> fast.getSentTexts().size() == 6);
+        assertThat(meterRegistry.counter("sso.websocket.send.limit-exceeded").count()).isEqualTo(1);
+    }
+
+    @Test
+    void heartbeatRotatesThroughAllSocketsAcrossPasses() {
+        LogoutNotificationService service = newService();
+        // 预算为0时每次只检查一个连接，未检查的连接留到下一次
+        ReflectionTestUtils.setField(service, "heartbeatMaxDurationMillis", 0L);
+        List<TestWebSocketSession> sessions = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            TestWebSocketSession session = new TestWebSocketSession("ws-heartbeat-" + i);
+            service.registerWebSocketSession("http-heartbeat-" + i, "user-heartbeat", session);
+            sessions.add(session);
+        }
+
+        for (int pass = 1; pass <= 2; pass++) {
+            for (int i = 0; i < sessions.size(); i++) {
+                service.sendHeartbeat();
+            }
+            int expectedPings = pass;
+            await().atMost(Duration.ofSeconds(5))
+                    .until(() -> sessions.stream().allMatch(session -> pings(session) == expectedPings));
+        }
+    }
+
+    @Test
+    void sockJsSessionsReceiveApplicationHeartbeat() throws Exception {
+        LogoutNotificationService service = newService();
+        TestSockJsSession sockJsSession = new TestSockJsSession("ws-sockjs");
+        TestWebSocketSession nativeSession = new TestWebSocketSession("ws-native");
+        service.registerWebSocketSession("http-sockjs", "user-sockjs", sockJsSession);
+        service.registerWebSocketSession("http-native", "user-native", nativeSession);
+
+        service.sendHeartbeat();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> sockJsSession.getSentTexts().size() == 2);
+        assertThat(OBJECT_MAPPER.readTree(sockJsSession.getSentTexts().get(1)).get("type").asText())
+                .isEqualTo("HEARTBEAT");
+        assertThat(pings(sockJsSession)).isZero();
+        await().atMost(Duration.ofSeconds(5)).until(() -> pings(nativeSession) == 1);
+        assertThat(nativeSession.getSentTexts()).hasSize(1);
+    }
+
+    /**
+     * 注册指定数量的用户（每个用户两个连接），确认查找只访问目标连接，并返回单次查找的平均耗时(纳秒)
+     */
+    /**
+     * 每个用户注册两个标签页的连接，连接ID为ws-用户序号-a/b，HTTP会话ID为http-用户序号-a/b
+     */
+    static List<TestWebSocketSession> registerTwoTabsPerUser(LogoutNotificationService service, int users) {
+        List<TestWebSocketSession> sessions = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            for (String tab : new String[] {"a", "b"}) {
+                TestWebSocketSession session = new TestWebSocketSession("ws-" + i + "-" + tab);
+                service.registerWebSocketSession("http-" + i + "-" + tab, "user-" + i, session);
+                sessions.add(session);
+            }
+        }
+        return sessions;
+    }
+
+    private LogoutNotificationService newService() {
+        LogoutNotificationService service = new LogoutNotificationService();
+        ReflectionTestUtils.setField(service, "objectMapper", OBJECT_MAPPER);
+        ReflectionTestUtils.setField(service, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(service, "sendTimeLimit", 10000);
+        ReflectionTestUtils.setField(service, "bufferSizeLimit", 524288);
+        ReflectionTestUtils.setField(service, "overflowStrategy", "terminate");
+        ReflectionTestUtils.setField(service, "idleTimeoutMillis", 75000L);
+        ReflectionTestUtils.setField(service, "heartbeatMaxDurationMillis", 50L);
+        service.init();
+        services.add(service);
+        return service;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, ?> index(LogoutNotificationService service, String field) {
+        return (Map<String, ?>) ReflectionTestUtils.getField(service, field);
+    }
+
+    private double closedCount(String code) {
+        return meterRegistry.get("sso.websocket.closed").tag("code", code).counter().count();
+    }
+
+    private static long pings(TestWebSocketSession session) {
+        return session.getSentMessages().stream().filter(PingMessage.class::isInstance).count();
+    }
+
+    /**
+     * 测试用SockJS会话，不支持Ping帧
+     */
+    private static class TestSockJsSession extends TestWebSocketSession implements SockJsSession {
+
+        TestSockJsSession(String id) {
+            super(id);
+        }
+
+        @Override
+        public long getTimeSinceLastActive() {
+            return 0;
+        }
+
+        @Override
+        public void disableHeartbeat() {
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.oauth2sso.service;
+
+import com.example.oauth2sso.config.HttpClientConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * OAuth2令牌管理服务测试
+ * 在本机启动HTTP桩代替GitHub接口，请求经由HttpClientConfig配置的连接池HttpClient发出，
+ * 验证并发请求合并，以及令牌查询缓存与撤销的一致性
+ *
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+class OAuth2TokenServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    private final ExecutorService serverExecutor = Executors.newCachedThreadPool();
+
+    // GitHub用户信息接口的桩实现，由各测试设置
+    private volatile Upstream upstream = () -> new StubResponse(404, "{}");
+
+    private HttpServer server;
+
+    private PoolingHttpClientConnectionManager connectionManager;
+
+    private CloseableHttpClient httpClient;
+
+    private OAuth2TokenService tokenService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(serverExecutor);
+        server.createContext("/user", this::handleUser);
+        server.start();
+
+        HttpClientConfig httpClientConfig = new HttpClientConfig();
+        ReflectionTestUtils.setField(httpClientConfig, "connectTimeoutMillis", 1000L);
+        ReflectionTestUtils.setField(httpClientConfig, "readTimeoutMillis", 5000L);
+        ReflectionTestUtils.setField(httpClientConfig, "connectionRequestTimeoutMillis", 5000L);
+        ReflectionTestUtils.setField(httpClientConfig, "maxTotal", 100);
+        ReflectionTestUtils.setField(httpClientConfig, "maxPerRoute", 20);
+        ReflectionTestUtils.setField(httpClientConfig, "idleEvictionMillis", 30000L);
+        ReflectionTestUtils.setField(httpClientConfig, "timeToLiveMillis", 300000L);
+        ReflectionTestUtils.setField(httpClientConfig, "validateAfterInactivityMillis", 2000L);
+        connectionManager = httpClientConfig.httpClientConnectionManager();
+        httpClient = httpClientConfig.httpClient(connectionManager);
+        RestTemplate restTemplate = httpClientConfig.restTemplate(httpClientConfig.clientHttpRequestFactory(httpClient));
+
+        tokenService = new OAuth2TokenService();
+        ReflectionTestUtils.setField(tokenService, "restTemplate", restTemplate);
+        ReflectionTestUtils.setField(tokenService, "githubApiUrl",
+                                     "http://127.0.0.1:" + server.getAddress().getPort());
+        ReflectionTestUtils.setField(tokenService, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(tokenService, "tokenCacheTtlMillis", 60000L);
+        ReflectionTestUtils.setField(tokenService, "tokenCacheNegativeTtlMillis", 10000L);
+        ReflectionTestUtils.setField(tokenService, "tokenCacheMaxSize", 100L);
+        tokenService.initTokenCache();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        executor.shutdownNow();
+        httpClient.close();
+        connectionManager.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void concurrentLookupsReachUpstreamOnce() throws Exception {
+        int callers = 16;
+        CountDownLatch releaseFetch = new CountDownLatch(1);
+        stubUpstream(() -> {
+            upstreamCalls.incrementAndGet();
+            releaseFetch.await();
+            return new StubResponse(200, "{\"login\":\"alice\"}");
+        });
+
+        List<Future<Map<String, Object>>> futures = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            futures.add(executor.submit(() -> tokenService.getTokenInfo("token-shared")));
+        }
+        awaitCoalesced(callers - 1);
+        releaseFetch.countDown();
+
+        for (Future<Map<String, Object>> future : futures) {
+            assertThat(future.get(5, TimeUnit.SECONDS)).containsEntry("login", "alice");
+        }
+        assertThat(upstreamCalls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void upstreamFailureReachesEveryWaiter() throws Exception {
+        int callers = 16;
+        CountDownLatch releaseFetch = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("GitHub不可用");
+
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            futures.add(executor.submit(() -> tokenService.coalesce("user-info", "token-failing", () -> {
+                upstreamCalls.incrementAndGet();
+                awaitUninterruptibly(releaseFetch);
+                throw failure;
+            })));
+        }
+        awaitCoalesced(callers - 1);
+        releaseFetch.countDown();
+
+        for (Future<String> future : futures) {
+            assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .cause().isSameAs(failure);
+        }
+        assertThat(upstreamCalls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidationDuringLookupIsNotOverwrittenByStaleResult() throws Exception {
+        CountDownLatch fetchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFetch = new CountDownLatch(1);
+        stubUpstream(() -> {
+            if (upstreamCalls.incrementAndGet() == 1) {
+                fetchStarted.countDown();
+                releaseFetch.await();
+                return new StubResponse(200, "{\"login\":\"alice\"}");
+            }
+            return new StubResponse(401, "{\"message\":\"Bad credentials\"}");
+        });
+
+        Future<Boolean> inFlight = executor.submit(() -> tokenService.validateToken("token-race"));
+        assertThat(fetchStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        tokenService.invalidateToken("token-race");
+        releaseFetch.countDown();
+
+        // 撤销前发出的请求仍返回当时的结果，但不能写入缓存
+        assertThat(inFlight.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(tokenService.validateToken("token-race")).isFalse();
+        assertThat(upstreamCalls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void activeCheckFailsWhenGitHubStateIsUnknown() {
+        stubUpstream(() -> {
+            upstreamCalls.incrementAndGet();
+            return new StubResponse(503, "{\"message\":\"Service Unavailable\"}");
+        });
+
+        // 校验接口按无效处理，确认状态的接口不能把GitHub故障当作令牌已失效
+        assertThat(tokenService.validateToken("token-outage")).isFalse();
+        assertThatThrownBy(() -> tokenService.checkTokenActive("token-outage"))
+                .isInstanceOf(IllegalStateException.class);
+        // 无法确定的结果不写入缓存
+        assertThat(upstreamCalls.get()).isEqualTo(2);
+
+        stubUpstream(() -> new StubResponse(401, "{\"message\":\"Bad credentials\"}"));
+        assertThat(tokenService.checkTokenActive("token-outage")).isFalse();
+    }
+
+    private void awaitCoalesced(int waiters) {
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> meterRegistry.counter("sso.github.requests.coalesced").count() >= waiters);
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void stubUpstream(Upstream upstream) {
+        this.upstream = upstream;
+    }
+
+    private void handleUser(HttpExchange exchange) throws IOException {
+        StubResponse response;
+        try {
+            response = upstream.call();
+        } catch (Exception e) {
+            response = new StubResponse(500, "{}");
+        }
+        byte[] body = response.body().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(response.status(), body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    /**
+     * 桩GitHub用户信息接口
+     */
+    @FunctionalInterface
+    private interface Upstream {
+        StubResponse call() throws Exception;
+    }
+
+    /**
+     * 桩接口的响应
+     */
+    private record StubResponse(int status, String body) {
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.oauth2sso.service;
+
+import ch.qos.logback.classic.Level;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.session.SessionInformation;
+import org.springframework.security.core.session.SessionRegistry;
+import org.springframework.security.core.session.SessionRegistryImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 会话查找基准
+ * 分别注册10000和100000个会话（每个用户两个会话），对比遍历所有主体查找会话与按会话ID直接查找的单次耗时，
+ * 并测量一次完整的过期会话清理。通过 mvn test -Pbenchmark 运行，常规构建不运行
+ *
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+class SessionLookupBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionLookupBenchmark.class);
+
+    private static final int SCAN_LOOKUPS = 200;
+
+    private static final int DIRECT_LOOKUPS = 1_000_000;
+
+    @Test
+    void lookupsAtTenThousandAndOneHundredThousandSessions() {
+        ch.qos.logback.classic.Logger serviceLogger =
+                (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(SessionSyncService.class);
+        Level level = serviceLogger.getLevel();
+        serviceLogger.setLevel(Level.WARN);
+        try {
+            for (int sessions : new int[] {10_000, 100_000}) {
+                measure(sessions);
+            }
+        } finally {
+            serviceLogger.setLevel(level);
+        }
+    }
+
+    private void measure(int sessions) {
+        SessionRegistry registry = new SessionRegistryImpl();
+        SessionSyncService service = newService(registry);
+        try {
+            for (int i = 0; i < sessions; i++) {
+                String username = "user-" + (i / 2);
+                registry.registerNewSession("session-" + i, username);
+                service.registerUserSession(username, "session-" + i, null);
+            }
+
+            // 预热
+            scanLookups(registry, sessions, new Random(1));
+            directLookups(registry, sessions, new Random(1));
+
+            long started = System.nanoTime();
+            int found = scanLookups(registry, sessions, new Random(2));
+            long perScan = (System.nanoTime() - started) / SCAN_LOOKUPS;
+            assertThat(found).isEqualTo(SCAN_LOOKUPS);
+
+            started = System.nanoTime();
+            found = directLookups(registry, sessions, new Random(2));
+            long perDirect = (System.nanoTime() - started) / DIRECT_LOOKUPS;
+            assertThat(found).isEqualTo(DIRECT_LOOKUPS);
+
+            started = System.nanoTime();
+            service.cleanupExpiredSessions();
+            long cleanupMillis = (System.nanoTime() - started) / 1_000_000;
+
+            logger.info("会话查找基准: sessions={}, 遍历主体查找={} ns/次, 按会话ID查找={} ns/次, 完整清理一次={} ms(遍历方式估算{} ms)",
+                        sessions, perScan, perDirect, cleanupMillis, perScan * sessions / 1_000_000);
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    /**
+     * 修改前的查找方式：遍历所有主体及其会话
+     */
+    private static int scanLookups(SessionRegistry registry, int sessions, Random random) {
+        int found = 0;
+        for (int i = 0; i < SCAN_LOOKUPS; i++) {
+            String sessionId = "session-" + random.nextInt(sessions);
+            search:
+            for (Object principal : registry.getAllPrincipals()) {
+                for (SessionInformation session : registry.getAllSessions(principal, false)) {
+                    if (sessionId.equals(session.getSessionId())) {
+                        if (!session.isExpired()) {
+                            found++;
+                        }
+                        break search;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private static int directLookups(SessionRegistry registry, int sessions, Random random) {
+        int found = 0;
+        for (int i = 0; i < DIRECT_LOOKUPS; i++) {
+            SessionInformation session = registry.getSessionInformation("session-" + random.nextInt(sessions));
+            if (session != null && !session.isExpired()) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private static SessionSyncService newService(SessionRegistry registry) {
+        SessionSyncService service = new SessionSyncService();
+        ReflectionTestUtils.setField(service, "sessionRegistry", registry);
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "cleanupMaxDurationMillis", 60000L);
+        ReflectionTestUtils.setField(service, "fanOutMaxConcurrency", 64);
+        service.init();
+        return service;
+    }
+}
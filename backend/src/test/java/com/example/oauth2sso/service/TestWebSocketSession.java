@@ -0,0 +1,189 @@
+package com.example.oauth2sso.service;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 测试用WebSocket会话
+ * 记录发送的消息和isOpen调用次数，可以模拟较慢的发送；
+ * 与容器的实现一样，关闭连接需要等待正在进行的发送完成
+ *
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+class TestWebSocketSession implements WebSocketSession {
+
+    private final String id;
+
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+
+    private final List<WebSocketMessage<?>> sentMessages = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger openChecks = new AtomicInteger();
+
+    private final ReentrantLock sendLock = new ReentrantLock();
+
+    private volatile boolean open = true;
+
+    private volatile long sendDelayMillis;
+
+    TestWebSocketSession(String id) {
+        this.id = id;
+    }
+
+    /**
+     * 每次发送前等待的时间，用于模拟慢客户端
+     */
+    void setSendDelayMillis(long sendDelayMillis) {
+        this.sendDelayMillis = sendDelayMillis;
+    }
+
+    List<WebSocketMessage<?>> getSentMessages() {
+        return sentMessages;
+    }
+
+    List<String> getSentTexts() {
+        return sentMessages.stream()
+                .filter(TextMessage.class::isInstance)
+                .map(message -> ((TextMessage) message).getPayload())
+                .toList();
+    }
+
+    int getOpenChecks() {
+        return openChecks.get();
+    }
+
+    void resetOpenChecks() {
+        openChecks.set(0);
+    }
+
+    /**
+     * 模拟客户端断开，之后isOpen返回false
+     */
+    void disconnect() {
+        open = false;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public URI getUri() {
+        return URI.create("/ws/logout");
+    }
+
+    @Override
+    public HttpHeaders getHandshakeHeaders() {
+        return new HttpHeaders();
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public Principal getPrincipal() {
+        return null;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return null;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return null;
+    }
+
+    @Override
+    public String getAcceptedProtocol() {
+        return null;
+    }
+
+    @Override
+    public void setTextMessageSizeLimit(int messageSizeLimit) {
+    }
+
+    @Override
+    public int getTextMessageSizeLimit() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void setBinaryMessageSizeLimit(int messageSizeLimit) {
+    }
+
+    @Override
+    public int getBinaryMessageSizeLimit() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public List<WebSocketExtension> getExtensions() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        sendLock.lock();
+        try {
+            if (!open) {
+                throw new IOException("连接已关闭");
+            }
+            long delay = sendDelayMillis;
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("发送被中断", e);
+                }
+            }
+            sentMessages.add(message);
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        openChecks.incrementAndGet();
+        return open;
+    }
+
+    @Override
+    public void close() {
+        close(CloseStatus.NORMAL);
+    }
+
+    @Override
+    public void close(CloseStatus status) {
+        sendLock.lock();
+        try {
+            open = false;
+        } finally {
+            sendLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.oauth2sso.service;
+
+import com.example.oauth2sso.service.TokenRevocationQueue.RevocationState;
+import com.example.oauth2sso.service.TokenRevocationQueue.RevocationStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 令牌撤销队列测试
+ * 使用本地桩撤销提供者模拟失败，验证指数退避、按令牌去重、最终状态和关闭时的处理
+ *
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+class TokenRevocationQueueTest {
+
+    private final StubTokenRevocationProvider provider = new StubTokenRevocationProvider();
+
+    private TokenRevocationQueue queue;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (queue != null) {
+            queue.stop();
+        }
+    }
+
+    @Test
+    void retriesWithExponentialBackoffUntilRevoked() {
+        ReflectionTestUtils.setField(provider, "failuresBeforeSuccess", 2);
+        queue = startQueue(5, 100, 30000);
+
+        long started = System.nanoTime();
+        queue.submit("token-backoff");
+
+        RevocationStatus status = awaitFinished("token-backoff");
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - started).toMillis();
+
+        assertThat(status.state()).isEqualTo(RevocationState.REVOKED);
+        assertThat(status.attempts()).isEqualTo(3);
+        assertThat(status.lastError()).isNull();
+        // 两次重试分别退避100ms和200ms
+        assertThat(elapsedMillis).isGreaterThanOrEqualTo(300);
+        assertThat(provider.isTokenActive("token-backoff")).isFalse();
+    }
+
+    @Test
+    void duplicateSubmissionsShareOneTask() {
+        ReflectionTestUtils.setField(provider, "latencyMillis", 100L);
+        queue = startQueue(5, 100, 30000);
+
+        RevocationStatus first = queue.submit("token-dedupe");
+        RevocationStatus second = queue.submit("token-dedupe");
+        awaitFinished("token-dedupe");
+        RevocationStatus third = queue.submit("token-dedupe");
+
+        assertThat(second.submittedAt()).isEqualTo(first.submittedAt());
+        assertThat(third.submittedAt()).isEqualTo(first.submittedAt());
+        assertThat(third.state()).isEqualTo(RevocationState.REVOKED);
+        assertThat(provider.getAttemptCount("token-dedupe")).isEqualTo(1);
+    }
+
+    @Test
+    void exhaustedRetriesEndInFailedStatus() {
+        ReflectionTestUtils.setField(provider, "failuresBeforeSuccess", Integer.MAX_VALUE);
+        queue = startQueue(3, 10, 30000);
+
+        queue.submit("token-failed");
+
+        RevocationStatus status = awaitFinished("token-failed");
+        assertThat(status.state()).isEqualTo(RevocationState.FAILED);
+        assertThat(status.attempts()).isEqualTo(3);
+        assertThat(status.lastError()).isEqualTo("模拟撤销失败");
+        assertThat(status.finishedAt()).isNotNull();
+        assertThat(provider.getAttemptCount("token-failed")).isEqualTo(3);
+    }
+
+    @Test
+    void stopRetriesPendingTasksImmediately() throws InterruptedException {
+        ReflectionTestUtils.setField(provider, "failuresBeforeSuccess", 1);
+        queue = startQueue(5, 60000, 5000);
+
+        queue.submit("token-shutdown");
+        await().atMost(Duration.ofSeconds(5)).until(() -> provider.getAttemptCount("token-shutdown") == 1);
+
+        queue.stop();
+
+        RevocationStatus status = queue.getStatus(OAuth2TokenService.hashToken("token-shutdown")).orElseThrow();
+        assertThat(status.state()).isEqualTo(RevocationState.REVOKED);
+        assertThat(status.attempts()).isEqualTo(2);
+        queue = null;
+    }
+
+    private TokenRevocationQueue startQueue(int maxAttempts, long initialBackoffMillis, long shutdownTimeoutMillis) {
+        TokenRevocationQueue revocationQueue = new TokenRevocationQueue();
+        ReflectionTestUtils.setField(revocationQueue, "revocationProvider", provider);
+        ReflectionTestUtils.setField(revocationQueue, "oauth2TokenService", mock(OAuth2TokenService.class));
+        ReflectionTestUtils.setField(revocationQueue, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(revocationQueue, "workerCount", 2);
+        ReflectionTestUtils.setField(revocationQueue, "batchSize", 20);
+        ReflectionTestUtils.setField(revocationQueue, "capacity", 100);
+        ReflectionTestUtils.setField(revocationQueue, "maxAttempts", maxAttempts);
+        ReflectionTestUtils.setField(revocationQueue, "initialBackoffMillis", initialBackoffMillis);
+        ReflectionTestUtils.setField(revocationQueue, "maxBackoffMillis", 60000L);
+        ReflectionTestUtils.setField(revocationQueue, "statusRetentionMillis", 3600000L);
+        ReflectionTestUtils.setField(revocationQueue, "shutdownTimeoutMillis", shutdownTimeoutMillis);
+        revocationQueue.start();
+        return revocationQueue;
+    }
+
+    private RevocationStatus awaitFinished(String accessToken) {
+        String tokenHash = OAuth2TokenService.hashToken(accessToken);
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> queue.getStatus(tokenHash).map(RevocationStatus::state).orElse(null),
+                       state -> state != null && state != RevocationState.PENDING);
+        return queue.getStatus(tokenHash).orElseThrow();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.oauth2sso.service;
+
+import com.example.oauth2sso.dto.UserDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 创建用户测试
+ * 验证只有github_id唯一键冲突被报告为GitHub ID已存在，其他约束错误原样抛出
+ *
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class UserServiceCreateUserTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void duplicateGithubIdIsReported() {
+        UserDTO created = userService.createUser(new UserDTO("create-duplicate", "dave", "dave@example.com"));
+        assertThat(created.getId()).isNotNull();
+
+        assertThatThrownBy(() -> userService.createUser(new UserDTO("create-duplicate", "dave2", "dave2@example.com")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("create-duplicate");
+    }
+
+    @Test
+    void otherConstraintViolationsPropagate() {
+        // 实体字段都有Bean Validation校验，用临时的CHECK约束模拟数据库层面的其他约束错误
+        jdbcTemplate.execute("ALTER TABLE users ADD CONSTRAINT chk_test_followers CHECK (followers >= 0)");
+        try {
+            UserDTO user = new UserDTO("create-check", "erin", "erin@example.com");
+            user.setFollowers(-1);
+
+            assertThatThrownBy(() -> userService.createUser(user))
+                    .isInstanceOf(DataIntegrityViolationException.class);
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE users DROP CONSTRAINT chk_test_followers");
+        }
+    }
+}
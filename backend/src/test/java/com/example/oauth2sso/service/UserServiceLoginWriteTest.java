@@ -0,0 +1,138 @@
+package com.example.oauth2sso.service;
+
+import com.example.oauth2sso.dto.UserDTO;
+import com.example.oauth2sso.entity.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * OAuth2登录写入量测试
+ * 记录每次登录发出的UPDATE语句，按语句数和写入的列统计每次登录的写入量：
+ * 资料无变化时只以单行JDBC UPDATE写last_login，不改updated_at，也不清空其他用户的二级缓存；
+ * 资料变化时只写变化的列、last_login和updated_at
+ *
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+@SpringBootTest(properties = {
+        "app.user.login-persistence=jpa",
+        "app.user.last-login.write-behind-enabled=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.example.oauth2sso.service.UserServiceLoginWriteTest$CapturingStatementInspector"
+})
+@ActiveProfiles("test")
+class UserServiceLoginWriteTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        CapturingStatementInspector.STATEMENTS.clear();
+    }
+
+    @Test
+    void unchangedProfileWritesOnlyLastLogin() {
+        UserDTO first = login("write-unchanged", "bio");
+        UserDTO other = login("write-unchanged-other", "bio");
+        // 把另一个用户加载进二级缓存
+        userService.findByGithubId("write-unchanged-other");
+        assertThat(secondLevelCache().containsEntity(User.class, other.getId())).isTrue();
+        Timestamp updatedAt = jdbcTemplate.queryForObject("SELECT updated_at FROM users WHERE id = ?",
+                                                          Timestamp.class, first.getId());
+        CapturingStatementInspector.STATEMENTS.clear();
+
+        UserDTO second = login("write-unchanged", "bio");
+
+        // 最后登录时间由单行JDBC UPDATE写入，Hibernate不发出UPDATE
+        assertThat(userUpdates()).isEmpty();
+        Map<String, Object> row = jdbcTemplate.queryForMap("SELECT last_login, updated_at FROM users WHERE id = ?",
+                                                           first.getId());
+        assertThat(((Timestamp) row.get("last_login")).toLocalDateTime())
+                .isCloseTo(second.getLastLogin(), within(1, ChronoUnit.MICROS));
+        assertThat(row.get("updated_at")).isEqualTo(updatedAt);
+        // 只清除了登录用户的缓存，其他用户仍在二级缓存中
+        assertThat(secondLevelCache().containsEntity(User.class, other.getId())).isTrue();
+    }
+
+    @Test
+    void changedProfileWritesOnlyChangedColumns() {
+        login("write-changed", "bio");
+        CapturingStatementInspector.STATEMENTS.clear();
+
+        login("write-changed", "new bio");
+
+        List<String> updates = userUpdates();
+        assertThat(updates).hasSize(1);
+        assertThat(writtenColumns(updates.get(0))).containsExactlyInAnyOrder("bio", "last_login", "updated_at");
+    }
+
+    private UserDTO login(String githubId, String bio) {
+        return userService.processOAuth2Login(githubId, "writer", "writer@example.com", null, "Writer", bio,
+                                       null, null, null, 1, 2, 3);
+    }
+
+    private Cache secondLevelCache() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    }
+
+    private static List<String> userUpdates() {
+        return CapturingStatementInspector.STATEMENTS.stream()
+                .map(sql -> sql.toLowerCase(Locale.ROOT))
+                .filter(sql -> sql.startsWith("update users "))
+                .toList();
+    }
+
+    /**
+     * 解析UPDATE语句中以参数赋值的列，即实际写入新值的列
+     */
+    private static List<String> writtenColumns(String updateSql) {
+        String assignments = updateSql.substring(updateSql.indexOf(" set ") + 5, updateSql.indexOf(" where "));
+        return Arrays.stream(assignments.split(","))
+                .map(String::trim)
+                .filter(assignment -> assignment.endsWith("=?"))
+                .map(assignment -> assignment.substring(0, assignment.indexOf('=')).trim())
+                .toList();
+    }
+
+    /**
+     * 记录Hibernate发出的SQL语句
+     */
+    public static class CapturingStatementInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            // 去掉use_sql_comments添加的注释
+            STATEMENTS.add(sql.replaceFirst("^\\s*/\\*.*?\\*/", "").trim());
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.oauth2sso.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 用户名搜索索引基准
+ * 100万用户：对比原始long倒排列表与装箱Set&lt;Long&gt;倒排列表的堆占用，并测量构建和搜索耗时。
+ * 通过 mvn test -Pbenchmark 运行，常规构建不运行
+ *
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+class UsernameSearchIndexBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsernameSearchIndexBenchmark.class);
+
+    private static final int USERS = 1_000_000;
+
+    private static final int QUERIES = 10_000;
+
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz0123456789-";
+
+    @Test
+    void oneMillionUsers() {
+        String[] usernames = usernames();
+
+        long baseline = usedHeap();
+        long started = System.nanoTime();
+        Map<String, Set<Long>> boxed = boxedPostings(usernames);
+        long boxedBuildMillis = (System.nanoTime() - started) / 1_000_000;
+        long boxedBytes = usedHeap() - baseline;
+        assertThat(boxed).isNotEmpty();
+        boxed = null;
+
+        baseline = usedHeap();
+        started = System.nanoTime();
+        UsernameSearchIndex index = newIndex();
+        for (int i = 0; i < usernames.length; i++) {
+            index.put((long) i + 1, usernames[i]);
+        }
+        ReflectionTestUtils.invokeMethod(ReflectionTestUtils.getField(index, "current"), "trim");
+        long buildMillis = (System.nanoTime() - started) / 1_000_000;
+        long indexBytes = usedHeap() - baseline;
+
+        Random random = new Random(7);
+        long[] latencies = new long[QUERIES];
+        long hits = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            String username = usernames[random.nextInt(usernames.length)];
+            int length = 3 + random.nextInt(3);
+            int from = random.nextInt(Math.max(1, username.length() - length + 1));
+            String keyword = username.substring(from, Math.min(username.length(), from + length));
+            long queryStarted = System.nanoTime();
+            hits += index.search(keyword, 50).size();
+            latencies[i] = System.nanoTime() - queryStarted;
+        }
+        Arrays.sort(latencies);
+
+        logger.info("用户名搜索索引基准: users={}, 装箱倒排列表={} MB(构建{} ms), 原始long倒排列表(含用户名映射)={} MB(构建{} ms)",
+                    USERS, boxedBytes >> 20, boxedBuildMillis, indexBytes >> 20, buildMillis);
+        logger.info("用户名搜索索引基准: queries={}, hits={}, p50={} us, p99={} us, max={} us",
+                    QUERIES, hits, latencies[QUERIES / 2] / 1000, latencies[QUERIES * 99 / 100] / 1000,
+                    latencies[QUERIES - 1] / 1000);
+        assertThat(indexBytes).isLessThan(boxedBytes);
+    }
+
+    private static UsernameSearchIndex newIndex() {
+        UsernameSearchIndex index = new UsernameSearchIndex();
+        ReflectionTestUtils.setField(index, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(index, "enabled", true);
+        index.initMetrics();
+        return index;
+    }
+
+    /**
+     * 修改前的倒排列表结构，只含倒排列表，不含用户名映射
+     */
+    private static Map<String, Set<Long>> boxedPostings(String[] usernames) {
+        Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+        for (int i = 0; i < usernames.length; i++) {
+            Long id = (long) i + 1;
+            Set<String> grams = new HashSet<>();
+            for (int j = 0; j + UsernameSearchIndex.GRAM_LENGTH <= usernames[i].length(); j++) {
+                grams.add(usernames[i].substring(j, j + UsernameSearchIndex.GRAM_LENGTH));
+            }
+            for (String gram : grams) {
+                postings.computeIfAbsent(gram, key -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+        }
+        return postings;
+    }
+
+    private static String[] usernames() {
+        Random random = new Random(42);
+        String[] usernames = new String[USERS];
+        for (int i = 0; i < USERS; i++) {
+            char[] chars = new char[6 + random.nextInt(10)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+            }
+            usernames[i] = new String(chars);
+        }
+        return usernames;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
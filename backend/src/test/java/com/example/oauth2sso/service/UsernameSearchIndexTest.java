@@ -0,0 +1,61 @@
+package com.example.oauth2sso.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 用户名搜索索引测试
+ * 验证倒排列表在新增、改名和删除后的搜索结果，以及短关键字不走索引
+ *
+ * @author Luowenqiang
+ * @version 1.0.0
+ * @since 2024-12-26
+ */
+class UsernameSearchIndexTest {
+
+    private UsernameSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new UsernameSearchIndex();
+        ReflectionTestUtils.setField(index, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(index, "enabled", true);
+        index.initMetrics();
+    }
+
+    @Test
+    void ranksExactThenPrefixThenInnerMatches() {
+        index.put(1L, "xalice");
+        index.put(2L, "alice");
+        index.put(3L, "alice-dev");
+        index.put(4L, "bob");
+
+        assertThat(index.search("ALICE", 10)).containsExactly(2L, 3L, 1L);
+        assertThat(index.search("alice", 2)).containsExactly(2L, 3L);
+    }
+
+    @Test
+    void renamedAndRemovedUsersLeaveThePostings() {
+        for (long id = 1; id <= 20; id++) {
+            index.put(id, "user" + id);
+        }
+
+        index.put(5L, "renamed");
+        index.remove(7L);
+
+        assertThat(index.search("user", 50)).hasSize(18).doesNotContain(5L, 7L);
+        assertThat(index.search("renamed", 10)).containsExactly(5L);
+        assertThat(index.search("ser7", 10)).isEmpty();
+    }
+
+    @Test
+    void shortKeywordsAreLeftToTheDatabase() {
+        index.put(1L, "ab");
+
+        assertThat(index.search("ab", 10)).isEmpty();
+    }
+}
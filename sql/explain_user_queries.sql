@@ -0,0 +1,27 @@
+-- =================================================
+-- 用户表常用查询的执行计划检查
+-- 执行 Flyway V2 迁移后，在本地数据库中运行本脚本，确认以下查询都使用了对应的组合索引
+-- （key 列为期望的索引名，Extra 列不应出现 Using filesort）
+-- =================================================
+
+USE OAuth2db;
+
+-- 用户列表第一页，期望 idx_delete_flag_created_at_id
+EXPLAIN SELECT * FROM `users` WHERE `delete_flag` = '0' ORDER BY `created_at` DESC, `id` DESC LIMIT 21;
+
+-- 键集分页后续页，期望 idx_delete_flag_created_at_id
+EXPLAIN SELECT * FROM `users` WHERE `delete_flag` = '0'
+    AND (`created_at` < '2024-12-26 00:00:00' OR (`created_at` = '2024-12-26 00:00:00' AND `id` < 100))
+    ORDER BY `created_at` DESC, `id` DESC LIMIT 21;
+
+-- 按用户名精确查找，期望 idx_delete_flag_username
+EXPLAIN SELECT * FROM `users` WHERE `username` = 'testuser' AND `delete_flag` = '0';
+
+-- 不足3个字符的用户名关键字使用前缀搜索，期望 idx_delete_flag_username
+EXPLAIN SELECT * FROM `users` WHERE `username` LIKE 'te%' AND `delete_flag` = '0' ORDER BY `username`, `id` LIMIT 50;
+
+-- 活跃用户统计，期望 idx_delete_flag_last_login，Extra 为 Using index
+EXPLAIN SELECT `id`, `last_login` FROM `users` WHERE `delete_flag` = '0' AND `last_login` >= '2024-12-20 00:00:00';
+
+-- 按GitHub ID查找，期望 github_id 唯一索引
+EXPLAIN SELECT * FROM `users` WHERE `github_id` = '123456' AND `delete_flag` = '0';
@@ -9,6 +9,7 @@ USE OAuth2db;
 
 -- 删除已存在的表（如果存在）
 DROP TABLE IF EXISTS `users`;
+DROP TABLE IF EXISTS `users_archive`;
 
 -- 创建用户表
 CREATE TABLE `users` (
@@ -33,13 +34,39 @@ CREATE TABLE `users` (
     `delete_time` TIMESTAMP NULL COMMENT '删除时间'
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='用户信息表';
 
--- 创建索引
-CREATE INDEX `idx_github_id` ON `users` (`github_id`);
-CREATE INDEX `idx_username` ON `users` (`username`);
+-- 创建索引（与 backend/src/main/resources/db/migration 中的Flyway迁移保持一致）
+-- 查询均带 delete_flag = '0' 条件，因此组合索引以 delete_flag 开头；github_id 已有唯一索引
+CREATE INDEX `idx_delete_flag_created_at_id` ON `users` (`delete_flag`, `created_at`, `id`);
+CREATE INDEX `idx_delete_flag_username` ON `users` (`delete_flag`, `username`);
+CREATE INDEX `idx_delete_flag_last_login` ON `users` (`delete_flag`, `last_login`);
 CREATE INDEX `idx_email` ON `users` (`email`);
-CREATE INDEX `idx_delete_flag` ON `users` (`delete_flag`);
-CREATE INDEX `idx_created_at` ON `users` (`created_at`);
-CREATE INDEX `idx_last_login` ON `users` (`last_login`);
+CREATE INDEX `idx_delete_flag_delete_time` ON `users` (`delete_flag`, `delete_time`);
+
+-- 创建已删除用户归档表（软删除超过保留期的用户由后台任务移入）
+CREATE TABLE `users_archive` (
+    `id` BIGINT PRIMARY KEY COMMENT '用户ID（与users表相同）',
+    `github_id` VARCHAR(50) NOT NULL COMMENT 'GitHub用户ID',
+    `username` VARCHAR(100) NOT NULL COMMENT '用户名',
+    `email` VARCHAR(255) COMMENT '邮箱地址',
+    `avatar_url` VARCHAR(500) COMMENT '头像URL',
+    `name` VARCHAR(200) COMMENT '真实姓名',
+    `bio` TEXT COMMENT '个人简介',
+    `location` VARCHAR(255) COMMENT '所在地',
+    `company` VARCHAR(255) COMMENT '公司',
+    `blog` VARCHAR(500) COMMENT '博客地址',
+    `public_repos` INT DEFAULT 0 COMMENT '公开仓库数量',
+    `followers` INT DEFAULT 0 COMMENT '关注者数量',
+    `following` INT DEFAULT 0 COMMENT '关注数量',
+    `last_login` TIMESTAMP NULL COMMENT '最后登录时间',
+    `created_at` TIMESTAMP NULL COMMENT '创建时间',
+    `updated_at` TIMESTAMP NULL COMMENT '更新时间',
+    `delete_flag` CHAR(1) DEFAULT '1' COMMENT '删除标志 0-正常 1-删除',
+    `delete_user` VARCHAR(100) COMMENT '删除人',
+    `delete_time` TIMESTAMP NULL COMMENT '删除时间',
+    `archived_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '归档时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='已删除用户归档表';
+
+CREATE INDEX `idx_archive_github_id` ON `users_archive` (`github_id`);
 
 -- 插入测试数据（可选）
 INSERT INTO `users` (